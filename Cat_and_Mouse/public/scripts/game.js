@@ -48,6 +48,7 @@ window.addEventListener('keydown', function(e) {
 // Refresh UI at start
 $(document).ready(function() {
     loadAbout();
+    loadTickerSettings();
 });
 
 function loadAbout() {
@@ -63,13 +64,35 @@ function loadAbout() {
         });
 }
 
+// When the server moves the cats on its own clock, the client never sends MOVE_CATS.
+var serverMovesCats = false;
+function loadTickerSettings() {
+    axios.get('/api/metrics/ticks', {})
+        .then(function (response) {
+            serverMovesCats = response.data.enabled;
+        })
+        .catch(function (error) {
+            console.log("GET ticker settings ERROR:", error);
+        });
+}
+function startCatsTurn() {
+    if (serverMovesCats) {
+        return;
+    }
+    // Cats go next, after a moment
+    myAppObj.playersTurn = false;
+    setTimeout(sendMoveCats, 100);
+}
+
 function makeNewGame() {
     axios.post('api/games', {})
         .then(function (response) {
             console.log("POST new game returned:", response);
             myAppObj.game = response.data;
+            myAppObj.board = null;
             myAppObj.playersTurn = true;
             loadGameBoard();
+            openGameSocket();
 
             alertOnWrongStatus("POST games", 201, response.status);
         })
@@ -91,10 +114,14 @@ function loadGame() {
       });
 }
 function loadGameBoard() {
-    axios.get('/api/games/' + myAppObj.game.gameNumber + "/board", {})
+    var binaryConfig = {
+        headers: { 'Accept': 'application/octet-stream' },
+        responseType: 'arraybuffer'
+    };
+    axios.get('/api/games/' + myAppObj.game.gameNumber + "/board", binaryConfig)
       .then(function (response) {
         console.log("Load Board returned: ", response);
-        myAppObj.board = response.data;
+        myAppObj.board = decodeBinaryBoard(response.data);
 
         alertOnWrongStatus("GET board", 200, response.status);
       })
@@ -102,6 +129,161 @@ function loadGameBoard() {
         console.log("Load Board ERROR: ", error);
       });
 }
+// Decode the application/octet-stream board (see ApiBoardBinaryEncoder) into the same shape as
+// the JSON board.
+function decodeBinaryBoard(buffer) {
+    var view = new DataView(buffer);
+    var offset = 0;
+    function nextInt() {
+        var value = view.getInt32(offset, true);
+        offset += 4;
+        return value;
+    }
+    function nextLocation() {
+        var x = nextInt();
+        var y = nextInt();
+        return {x: x, y: y};
+    }
+    function nextBits(width, height) {
+        var bytes = new Uint8Array(buffer, offset, Math.ceil(width * height / 8));
+        offset += bytes.length;
+        var rows = [];
+        for (var y = 0; y < height; y++) {
+            var row = new Array(width);
+            for (var x = 0; x < width; x++) {
+                var i = y * width + x;
+                row[x] = (bytes[i >> 3] & (1 << (i & 7))) != 0;
+            }
+            rows.push(row);
+        }
+        return rows;
+    }
+
+    var board = {};
+    var versionLow = view.getUint32(0, true);
+    var versionHigh = view.getUint32(4, true);
+    offset = 8;
+    board.version = versionHigh * 4294967296 + versionLow;
+    board.boardWidth = nextInt();
+    board.boardHeight = nextInt();
+    board.viewLeft = nextInt();
+    board.viewTop = nextInt();
+    var viewWidth = nextInt();
+    var viewHeight = nextInt();
+    board.mouseLocation = nextLocation();
+    board.cheeseLocation = nextLocation();
+    var catCount = nextInt();
+    board.catLocations = [];
+    for (var i = 0; i < catCount; i++) {
+        board.catLocations.push(nextLocation());
+    }
+    var cheeseCount = nextInt();
+    board.cheeseLocations = [];
+    for (var i = 0; i < cheeseCount; i++) {
+        board.cheeseLocations.push(nextLocation());
+    }
+    board.hasWalls = nextBits(viewWidth, viewHeight);
+    board.isVisible = nextBits(viewWidth, viewHeight);
+    return board;
+}
+// Fetch only the cells changed since the board we have; fall back to the full board when the
+// server's change log no longer reaches back to our version.
+function loadBoardChanges() {
+    if (myAppObj.board == null) {
+        loadGameBoard();
+        return;
+    }
+    axios.get('/api/games/' + myAppObj.game.gameNumber + "/board", {params: {since: myAppObj.board.version}})
+      .then(function (response) {
+        console.log("Load Board changes returned: ", response);
+        applyBoardDelta(response.data);
+
+        alertOnWrongStatus("GET board changes", 200, response.status);
+      })
+      .catch(function (error) {
+        console.log("Load Board changes ERROR: ", error);
+      });
+}
+function applyBoardDelta(delta) {
+    var board = myAppObj.board;
+    if (board == null || delta.version <= board.version) {
+        return;
+    }
+    // Revealing cells is idempotent, so a delta that starts before our version still applies;
+    // one that starts after it means we missed changes.
+    if (delta.isFullBoardNeeded || delta.sinceVersion > board.version) {
+        loadGameBoard();
+    } else {
+        applyBoardChanges(board, delta);
+    }
+}
+function applyBoardChanges(board, delta) {
+    delta.changedCells.forEach(function (cell) {
+        Vue.set(board.hasWalls[cell.y], cell.x, cell.hasWall);
+        Vue.set(board.isVisible[cell.y], cell.x, cell.isVisible);
+    });
+    board.mouseLocation = delta.mouseLocation;
+    board.cheeseLocation = delta.cheeseLocation;
+    board.cheeseLocations = delta.cheeseLocations;
+    board.catLocations = delta.catLocations;
+    board.version = delta.version;
+}
+// Push channel: moves go out over the socket and every change to the game comes back on it.
+// Falls back to the REST calls when the socket is not open.
+var gameSocket = null;
+var awaitingSocketReply = null;
+function openGameSocket() {
+    if (gameSocket != null) {
+        gameSocket.close();
+    }
+    awaitingSocketReply = null;
+    var scheme = (window.location.protocol == "https:") ? "wss://" : "ws://";
+    var socket = new WebSocket(scheme + window.location.host + '/api/games/' + myAppObj.game.gameNumber + '/socket');
+    socket.onmessage = function (event) {
+        applyGameUpdate(JSON.parse(event.data));
+    };
+    socket.onclose = function (event) {
+        console.log("Game socket closed: ", event);
+        if (gameSocket == socket) {
+            gameSocket = null;
+            awaitingSocketReply = null;
+        }
+    };
+    gameSocket = socket;
+}
+function isGameSocketOpen() {
+    return gameSocket != null && gameSocket.readyState == WebSocket.OPEN;
+}
+function sendOnGameSocket(command) {
+    awaitingSocketReply = command;
+    gameSocket.send(command);
+}
+function applyGameUpdate(update) {
+    console.log("Game update: ", update);
+    var game = myAppObj.game;
+    if (game == null || game.gameNumber != update.gameNumber) {
+        return;
+    }
+    game.isGameWon = update.isGameWon;
+    game.isGameLost = update.isGameLost;
+    game.numCheeseFound = update.numCheeseFound;
+    game.numCheeseGoal = update.numCheeseGoal;
+    applyBoardDelta(update.board);
+
+    var reply = awaitingSocketReply;
+    awaitingSocketReply = null;
+    if (reply == "MOVE_CATS") {
+        myAppObj.playersTurn = true;
+    } else if (reply != null) {
+        if (update.isMoveRejected) {
+            console.log("Move player: hit the wall.");
+            playSound();
+        } else {
+            startCatsTurn();
+        }
+    }
+}
+
 function send1CheeseCheat() {
     axios.post('/api/games/' + myAppObj.game.gameNumber + "/cheatstate", "1_CHEESE", plainTextConfig)
         .then(function (response) {
@@ -129,12 +311,16 @@ function sendMoveCats() {
         console.log("Cats cannot make move after game has ended.");
         return;
     }
+    if (isGameSocketOpen()) {
+        sendOnGameSocket("MOVE_CATS");
+        return;
+    }
 
     axios.post('/api/games/' + myAppObj.game.gameNumber + "/moves", "MOVE_CATS", plainTextConfig)
         .then(function (response) {
             console.log("Cat move returned: ", response);
             myAppObj.playersTurn = true;
-            loadGameBoard();
+            loadBoardChanges();
             loadGame();
             alertOnWrongStatus("POST Cats Move", 202, response.status);
         })
@@ -154,15 +340,20 @@ function sendMove(directionStr) {
         return;
     }
 
+    if (isGameSocketOpen()) {
+        if (awaitingSocketReply == null) {
+            sendOnGameSocket(directionStr);
+        }
+        return;
+    }
+
     axios.post('/api/games/' + myAppObj.game.gameNumber + "/moves", directionStr, plainTextConfig)
         .then(function (response) {
             console.log("Move player returned:", response);
-            loadGameBoard();
+            loadBoardChanges();
             loadGame();
 
-            // Cats go next, after a moment
-            myAppObj.playersTurn = false;
-            setTimeout(sendMoveCats, 100);
+            startCatsTurn();
             alertOnWrongStatus("POST Mouse Move", 202, response.status);
         })
         .catch(function (error) {
@@ -0,0 +1,31 @@
+package ca.MazeGame.api;
+
+import ca.MazeGame.model.Maze;
+import ca.MazeGame.model.MazeGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the full board view of a new game, as the board endpoint does when the game's version
+ * has changed since it last built one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ApiBoardWrapperBenchmark {
+    @Param({"20", "100", "500"})
+    public int size;
+
+    private MazeGame game;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = new MazeGame(new Maze(size, size, 1));
+    }
+
+    @Benchmark
+    public ApiBoardWrapper makeFromGame() {
+        return ApiBoardWrapper.makeFromGame(game, false);
+    }
+}
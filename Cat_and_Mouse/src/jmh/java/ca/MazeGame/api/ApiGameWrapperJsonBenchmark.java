@@ -0,0 +1,43 @@
+package ca.MazeGame.api;
+
+import ca.MazeGame.model.Maze;
+import ca.MazeGame.model.MazeGame;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a game, and its full board view, as JSON with an ObjectMapper set up the way Spring
+ * sets up the one the controllers use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ApiGameWrapperJsonBenchmark {
+    @Param({"20", "100"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private ApiGameWrapper gameWrapper;
+    private ApiBoardWrapper boardWrapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        gameWrapper = ApiGameWrapper.makeFromGame(new MazeGame(new Maze(size, size, 1)), 1);
+        boardWrapper = gameWrapper.makeFullBoardView();
+    }
+
+    @Benchmark
+    public byte[] writeGame() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(gameWrapper);
+    }
+
+    @Benchmark
+    public byte[] writeBoard() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(boardWrapper);
+    }
+}
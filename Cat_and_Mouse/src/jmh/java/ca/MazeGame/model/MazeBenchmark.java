@@ -0,0 +1,37 @@
+package ca.MazeGame.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Laying out a new maze with the default generator, for square boards of a few sizes. Each call
+ * uses the next seed, so every maze is different but a run is repeatable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MazeBenchmark {
+    @Param({"20", "100", "500"})
+    public int size;
+
+    private long seed;
+    private MazeGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        seed = 0;
+        generator = new ConstructiveMazeGenerator();
+    }
+
+    @Benchmark
+    public Maze newMaze() {
+        return new Maze(size, size, seed++);
+    }
+
+    // As the game simulator does: one generator, so its scratch space is reused.
+    @Benchmark
+    public Maze newMazeReusingGenerator() {
+        return new Maze(size, size, generator, seed++);
+    }
+}
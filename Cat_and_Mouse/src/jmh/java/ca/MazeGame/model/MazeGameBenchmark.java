@@ -0,0 +1,133 @@
+package ca.MazeGame.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One mouse move, one round of cat moves, and the two together as clients play them, on a running
+ * game. Each iteration starts a new game on the same maze layout, so the board is not all revealed
+ * by the end of a long run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MazeGameBenchmark {
+    private static final int NUM_MOVES = 4096;
+
+    @State(Scope.Thread)
+    public static class PlayerMoveState {
+        @Param({"20", "500"})
+        public int size;
+
+        @Param({"1", "8"})
+        public int sight;
+
+        MazeGame game;
+        // A random walk: moves into walls are rejected, as they are for clients.
+        final MoveDirection[] moves = new MoveDirection[NUM_MOVES];
+        int nextMove;
+
+        @Setup(Level.Trial)
+        public void pickMoves() {
+            pickRandomMoves(moves);
+        }
+
+        @Setup(Level.Iteration)
+        public void startGame() {
+            game = new MazeGame(new Maze(size, size, 1), 0, Integer.MAX_VALUE, CatStrategyType.RANDOM_WALK,
+                    MazeGame.DEFAULT_NUM_CHEESE_ON_BOARD, SightRange.of(sight, false));
+            nextMove = 0;
+        }
+    }
+
+    // The mouse walks at random between cat ticks, so cats that chase it keep replanning rather than
+    // sitting on a caught mouse. Once the game ends a new one starts on the same maze.
+    @State(Scope.Thread)
+    public static class CatMoveState {
+        @Param({"20", "200"})
+        public int size;
+
+        @Param({"random", "pursuit", "corridor"})
+        public String catStrategy;
+
+        Maze maze;
+        MazeGame game;
+        final MoveDirection[] moves = new MoveDirection[NUM_MOVES];
+        int nextMove;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            maze = new Maze(size, size, 1);
+            pickRandomMoves(moves);
+        }
+
+        @Setup(Level.Iteration)
+        public void startGame() {
+            game = new MazeGame(maze, MazeGame.DEFAULT_NUM_CATS, MazeGame.DEFAULT_NUM_CHEESE_TO_COLLECT,
+                    CatStrategyType.fromName(catStrategy));
+        }
+    }
+
+    // A mouse move then a cat tick on a default game, as a client sends them. Once the game ends a new
+    // one starts on the same maze; that allocates, so -prof gc counts restarts in the cycle's B/op.
+    @State(Scope.Thread)
+    public static class PlayCycleState {
+        @Param({"20", "200"})
+        public int size;
+
+        Maze maze;
+        MazeGame game;
+        final MoveDirection[] moves = new MoveDirection[NUM_MOVES];
+        int nextMove;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            maze = new Maze(size, size, 1);
+            pickRandomMoves(moves);
+        }
+
+        @Setup(Level.Iteration)
+        public void startGame() {
+            game = new MazeGame(maze);
+        }
+    }
+
+    private static void pickRandomMoves(MoveDirection[] moves) {
+        MoveDirection[] directions = {
+                MoveDirection.MOVE_UP, MoveDirection.MOVE_RIGHT, MoveDirection.MOVE_DOWN, MoveDirection.MOVE_LEFT};
+        GameRandom random = new GameRandom(1);
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = directions[random.nextInt(directions.length)];
+        }
+    }
+
+    @Benchmark
+    public boolean recordPlayerMove(PlayerMoveState state) {
+        MoveDirection move = state.moves[state.nextMove];
+        state.nextMove = (state.nextMove + 1) & (NUM_MOVES - 1);
+        return state.game.recordPlayerMove(move);
+    }
+
+    // Includes one mouse move; recordPlayerMove above times that on its own.
+    @Benchmark
+    public long doCatMoves(CatMoveState state) {
+        if (state.game.hasUserLost() || state.game.hasUserWon()) {
+            state.startGame();
+        }
+        state.game.recordPlayerMove(state.moves[state.nextMove]);
+        state.nextMove = (state.nextMove + 1) & (NUM_MOVES - 1);
+        state.game.doCatMoves();
+        return state.game.getVersion();
+    }
+
+    @Benchmark
+    public long moveAndCatTick(PlayCycleState state) {
+        if (state.game.hasUserLost() || state.game.hasUserWon()) {
+            state.startGame();
+        }
+        state.game.recordPlayerMove(state.moves[state.nextMove]);
+        state.nextMove = (state.nextMove + 1) & (NUM_MOVES - 1);
+        state.game.doCatMoves();
+        return state.game.getVersion();
+    }
+}
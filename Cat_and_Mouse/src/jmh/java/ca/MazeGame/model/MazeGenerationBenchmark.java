@@ -0,0 +1,57 @@
+package ca.MazeGame.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long creating a maze takes with each generator, sampled so the percentiles (p0.50, p0.99)
+ * show the slow creations, and how many layouts each creation generated before one passed Maze's
+ * checks. Prim's generator is only practical on small boards, so the sizes stay small.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MazeGenerationBenchmark {
+    @Param({"constructive", "prim"})
+    public String generatorName;
+
+    @Param({"20", "30"})
+    public int size;
+
+    private long seed;
+    private MazeGenerator generator;
+
+    // JMH only reports counters in throughput and average time modes. In throughput mode this is
+    // reported as a rate next to the mazes made: the ratio of the two is the mean attempts per maze.
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Attempts {
+        public long generationAttempts;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            generationAttempts = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        seed = 0;
+        generator = generatorName.equals("prim") ? new PrimMazeGenerator() : new ConstructiveMazeGenerator();
+    }
+
+    @Benchmark
+    public Maze newMaze() {
+        return new Maze(size, size, generator, seed++);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Maze countGenerationAttempts(Attempts attempts) {
+        Maze maze = new Maze(size, size, generator, seed++);
+        attempts.generationAttempts += maze.getGenerationAttempts();
+        return maze;
+    }
+}
@@ -0,0 +1,41 @@
+package ca.MazeGame.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PathFinder: colouring a board's regions when it is built, then asking whether two corners are
+ * connected. Sizes stay small, since building it rescans the whole board for every merge.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PathFinderBenchmark {
+    @Param({"20", "50", "100"})
+    public int size;
+
+    private Board board;
+    private PathFinder pathFinder;
+    private CellLocation topLeft;
+    private CellLocation bottomRight;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new Maze(size, size, 1).getBoard();
+        pathFinder = new PathFinder(board);
+        topLeft = CellLocation.of(1, 1);
+        bottomRight = CellLocation.of(size - 2, size - 2);
+    }
+
+    @Benchmark
+    public PathFinder construct() {
+        return new PathFinder(board);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean hasPath() {
+        return pathFinder.hasPath(topLeft, bottomRight);
+    }
+}
@@ -0,0 +1,53 @@
+package ca.MazeGame.services;
+
+import ca.MazeGame.api.ApiGameWrapper;
+import ca.MazeGame.model.Maze;
+import ca.MazeGame.model.MazeGame;
+import ca.MazeGame.model.MoveDirection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for the registry: several threads look up random games and move their mice, with
+ * more and more games registered. Lookups are O(1) and each game has its own lock, so throughput
+ * should stay flat as the game count grows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class GameRegistryBenchmark {
+    private static final int MAZE_SIZE = 10;
+
+    @Param({"100", "10000", "100000"})
+    public int numGames;
+
+    private GameRegistry registry;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // No idle timeout or caps that the benchmark could reach.
+        registry = new GameRegistry(Long.MAX_VALUE / 1000, Integer.MAX_VALUE, Long.MAX_VALUE / (1024 * 1024));
+        ids = new long[numGames];
+        for (int i = 0; i < numGames; i++) {
+            ids[i] = registry.register(new MazeGame(new Maze(MAZE_SIZE, MAZE_SIZE, i), 0, 1)).gameNumber;
+        }
+    }
+
+    @Benchmark
+    public ApiGameWrapper lookUp() {
+        return registry.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    // A move left or right takes the game's lock whether or not a wall rejects it.
+    @Benchmark
+    public boolean lookUpAndMove() {
+        ApiGameWrapper game = registry.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+        MoveDirection move = ThreadLocalRandom.current().nextBoolean()
+                ? MoveDirection.MOVE_RIGHT : MoveDirection.MOVE_LEFT;
+        return game.makeAMove(move);
+    }
+}
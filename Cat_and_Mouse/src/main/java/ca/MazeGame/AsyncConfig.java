@@ -0,0 +1,40 @@
+package ca.MazeGame;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Runs asynchronous request work (such as streamed responses) on a bounded pool instead of
+ * Spring MVC's default executor, which starts a new thread for every request.
+ */
+@Configuration
+public class AsyncConfig extends WebMvcConfigurerAdapter {
+    private final int threads;
+    private final int queueCapacity;
+
+    public AsyncConfig(@Value("${game.async.threads:8}") int threads,
+                       @Value("${game.async.queue-capacity:1000}") int queueCapacity) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    // A bean, so it is shut down with the application context.
+    @Bean
+    public ThreadPoolTaskExecutor requestAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("request-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(requestAsyncExecutor());
+    }
+}
@@ -0,0 +1,109 @@
+package ca.MazeGame.api;
+import ca.MazeGame.model.Board;
+import ca.MazeGame.model.CellLocation;
+import ca.MazeGame.model.Cat;
+import ca.MazeGame.model.MazeGame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Compact application/octet-stream encoding of the same board view as ApiBoardWrapper, written
+ * straight from the model's Board bits. All numbers are little-endian:
+ *
+ *   uint32 version (low bits), uint32 version (high bits)
+ *   int32 boardWidth, boardHeight, viewLeft, viewTop, viewWidth, viewHeight
+ *   int32 mouseX, mouseY, cheeseX, cheeseY (-1, -1 when there is no cheese)
+ *   int32 catCount, then int32 x, y for each cat
+ *   int32 cheeseCount, then int32 x, y for each cheese (the first is cheeseX, cheeseY again)
+ *   wall bits, then visibility bits: cell (x, y) of the view is bit i % 8 of byte i / 8,
+ *   where i = y * viewWidth + x; each bit array is padded to a whole byte.
+ *
+ * Two bits per cell instead of the five to six bytes per cell of two JSON boolean[][] arrays.
+ * The decoder in public/scripts/game.js turns it back into an ApiBoardWrapper-shaped object.
+ */
+
+public class ApiBoardBinaryEncoder {
+    // Board size, view, mouse, cheese, cat count and cheese count; the version is written as two
+    // more ints.
+    private static final int HEADER_INTS = 12;
+
+    public static byte[] encode(MazeGame game, boolean visibility, int left, int top, int width, int height) {
+        Board board = game.getMaze().getBoard();
+        int boardWidth = board.getWidth();
+        int boardHeight = board.getHeight();
+        int viewLeft = Math.min(Math.max(left, 0), boardWidth);
+        int viewTop = Math.min(Math.max(top, 0), boardHeight);
+        int viewWidth = Math.max(0, Math.min(width, boardWidth - viewLeft));
+        int viewHeight = Math.max(0, Math.min(height, boardHeight - viewTop));
+
+        List<Cat> cats = game.getCats();
+        List<CellLocation> cheeseLocations = game.getCheeseLocations();
+        int bitBytes = (viewWidth * viewHeight + 7) / 8;
+        ByteBuffer out = ByteBuffer.allocate(8 + 4 * (HEADER_INTS + 2 * (cats.size() + cheeseLocations.size())) + 2 * bitBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        long version = game.getVersion();
+        out.putInt((int) version).putInt((int) (version >>> 32));
+        out.putInt(boardWidth).putInt(boardHeight);
+        out.putInt(viewLeft).putInt(viewTop).putInt(viewWidth).putInt(viewHeight);
+        putLocation(out, game.getPlayerLocation());
+        putLocation(out, game.getCheeseLocation());
+        out.putInt(cats.size());
+        for (Cat cat : cats) {
+            putLocation(out, cat.getLocation());
+        }
+        out.putInt(cheeseLocations.size());
+        for (CellLocation cheese : cheeseLocations) {
+            putLocation(out, cheese);
+        }
+
+        boolean isWholeBoard = viewWidth == boardWidth && viewHeight == boardHeight;
+        if (isWholeBoard) {
+            board.writeWallBits(out);
+        } else {
+            putViewBits(out, board, true, viewLeft, viewTop, viewWidth, viewHeight);
+        }
+        if (visibility) {
+            for (int i = 0; i < bitBytes; i++) {
+                out.put((byte) 0xFF);
+            }
+        } else if (isWholeBoard) {
+            board.writeVisibleBits(out);
+        } else {
+            putViewBits(out, board, false, viewLeft, viewTop, viewWidth, viewHeight);
+        }
+        return out.array();
+    }
+
+    private static void putLocation(ByteBuffer out, CellLocation cell) {
+        if (cell == null) {
+            out.putInt(-1).putInt(-1);
+        } else {
+            out.putInt(cell.getX()).putInt(cell.getY());
+        }
+    }
+
+    private static void putViewBits(ByteBuffer out, Board board, boolean walls,
+                                    int viewLeft, int viewTop, int viewWidth, int viewHeight) {
+        int current = 0;
+        int bit = 0;
+        for (int y = viewTop; y < viewTop + viewHeight; y++) {
+            for (int x = viewLeft; x < viewLeft + viewWidth; x++) {
+                int index = board.indexOf(x, y);
+                if (walls ? board.isWall(index) : board.isVisible(index)) {
+                    current |= 1 << bit;
+                }
+                if (++bit == 8) {
+                    out.put((byte) current);
+                    current = 0;
+                    bit = 0;
+                }
+            }
+        }
+        if (bit > 0) {
+            out.put((byte) current);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ca.MazeGame.api;
+import ca.MazeGame.model.Board;
+import ca.MazeGame.model.Cat;
+import ca.MazeGame.model.MazeGame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wrapper for the changes to a board since a version the client already has: the cells that
+ * changed plus the current mouse, cheese and cat locations. When the game's change log no longer
+ * reaches back to that version, isFullBoardNeeded is set and the client should fetch the full board.
+ */
+
+public class ApiBoardDeltaWrapper {
+    public long version;
+    public long sinceVersion;
+    public boolean isFullBoardNeeded;
+    public ApiLocationWrapper mouseLocation;
+    public ApiLocationWrapper cheeseLocation;
+    public List<ApiLocationWrapper> cheeseLocations;
+    public List<ApiLocationWrapper> catLocations;
+    public List<ApiCellWrapper> changedCells;
+
+    public static ApiBoardDeltaWrapper makeFromGame(MazeGame game, boolean visibility, long sinceVersion) {
+        ApiBoardDeltaWrapper wrapper = new ApiBoardDeltaWrapper();
+        wrapper.version = game.getVersion();
+        wrapper.sinceVersion = sinceVersion;
+        wrapper.mouseLocation = ApiLocationWrapper.makeFromCellLocation(game.getPlayerLocation());
+        wrapper.cheeseLocation = ApiLocationWrapper.makeFromCellLocation(game.getCheeseLocation());
+        wrapper.cheeseLocations = ApiLocationWrapper.makeFromCellLocations(game.getCheeseLocations());
+
+        List<Cat> cats = game.getCats();
+        wrapper.catLocations = new ArrayList<>(cats.size());
+        for (Cat cat: cats){
+            wrapper.catLocations.add(ApiLocationWrapper.makeFromCellLocation(cat.getLocation()));
+        }
+
+        int[] changed = game.findCellsChangedSince(sinceVersion);
+        wrapper.isFullBoardNeeded = (changed == null);
+        wrapper.changedCells = new ArrayList<>(changed == null ? 0 : changed.length);
+        if (changed != null) {
+            Board board = game.getMaze().getBoard();
+            for (int index : changed) {
+                wrapper.changedCells.add(ApiCellWrapper.makeFromBoardIndex(board, index, visibility));
+            }
+        }
+        return wrapper;
+    }
+}
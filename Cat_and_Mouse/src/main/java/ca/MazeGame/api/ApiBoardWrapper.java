@@ -6,58 +6,79 @@ import java.util.List;
 /**
  * Wrapper class for the Maze, contains static factory method function to convert a maze created in
  * the model to one that fits the api. Also has one private method to create the visibility and walls
- * of the maze
+ * of the maze. The walls and visibility can be limited to a rectangular view of the board (starting
+ * at viewLeft, viewTop) so clients of large boards only fetch the part they show. cheeseLocation is
+ * the first of cheeseLocations, kept for clients that only know about one cheese.
  */
 
 
 
 public class ApiBoardWrapper {
+    public long version;
     public int boardWidth;
     public int boardHeight;
+    public int viewLeft;
+    public int viewTop;
     public ApiLocationWrapper mouseLocation;
     public ApiLocationWrapper cheeseLocation;
+    public List<ApiLocationWrapper> cheeseLocations;
     public List<ApiLocationWrapper> catLocations;
     public boolean[][] hasWalls;
     public boolean[][] isVisible;
 
     public static ApiBoardWrapper makeFromGame(MazeGame game, boolean visibility) {
+        return makeFromGame(game, visibility, 0, 0, game.getMazeWidth(), game.getMazeHeight());
+    }
+
+    // The view is clipped to the board.
+    public static ApiBoardWrapper makeFromGame(MazeGame game, boolean visibility,
+                                               int left, int top, int width, int height) {
         ApiBoardWrapper wrapper = new ApiBoardWrapper();
+        wrapper.version = game.getVersion();
         wrapper.mouseLocation = ApiLocationWrapper.makeFromCellLocation(game.getPlayerLocation());
         wrapper.cheeseLocation = ApiLocationWrapper.makeFromCellLocation((game.getCheeseLocation()));
+        wrapper.cheeseLocations = ApiLocationWrapper.makeFromCellLocations(game.getCheeseLocations());
 
         wrapper.catLocations = new ArrayList<>();
         List<Cat> cats = game.getCats();
         for (Cat cat: cats){
             wrapper.catLocations.add(ApiLocationWrapper.makeFromCellLocation(cat.getLocation()));
         }
-        wrapper.setWallsAndVisibility(game, visibility);
+        wrapper.setWallsAndVisibility(game, visibility, left, top, width, height);
         return wrapper;
     }
 
-    private void setWallsAndVisibility(MazeGame game, boolean visibility){
+    // Rough heap footprint: two boolean arrays with a header per row, plus the location wrappers.
+    public long estimateMemoryBytes() {
+        final int BYTES_PER_ROW = 16;
+        final int BYTES_PER_LOCATION = 24;
+        int rows = hasWalls.length;
+        int columns = (rows == 0) ? 0 : hasWalls[0].length;
+        long arrays = 2L * rows * (columns + BYTES_PER_ROW);
+        return arrays + (long) (catLocations.size() + cheeseLocations.size() + 2) * BYTES_PER_LOCATION;
+    }
+
+    private void setWallsAndVisibility(MazeGame game, boolean visibility,
+                                       int left, int top, int width, int height){
         Maze maze = game.getMaze();
         this.boardHeight = maze.getHeight();
         this.boardWidth = maze.getWidth();
 
-        CellState[][] cellStates = maze.getBoard();
-        this.hasWalls = new boolean[this.boardHeight][this.boardWidth];
-        this.isVisible = new boolean[this.boardHeight][this.boardWidth];
-
-        for(int y = 0; y < this.boardHeight; y++) {
-            for(int x = 0; x < this.boardWidth; x++){
-                CellState tmp = cellStates[y][x];
-                if(tmp.isWall()){
-                    this.hasWalls[y][x]= true;
-                }
-                if(tmp.isVisible()){
-                    this.isVisible[y][x] = true;
-                }
-                if(tmp.isHidden() && !visibility){
-                    this.isVisible[y][x] = false;
-                }
-                if(tmp.isHidden() && visibility){
-                    this.isVisible[y][x] = true;
-                }
+        this.viewLeft = Math.min(Math.max(left, 0), this.boardWidth);
+        this.viewTop = Math.min(Math.max(top, 0), this.boardHeight);
+        int viewWidth = Math.max(0, Math.min(width, this.boardWidth - this.viewLeft));
+        int viewHeight = Math.max(0, Math.min(height, this.boardHeight - this.viewTop));
+
+        Board board = maze.getBoard();
+        this.hasWalls = new boolean[viewHeight][viewWidth];
+        this.isVisible = new boolean[viewHeight][viewWidth];
+
+        for(int y = 0; y < viewHeight; y++) {
+            for(int x = 0; x < viewWidth; x++){
+                int boardX = this.viewLeft + x;
+                int boardY = this.viewTop + y;
+                this.hasWalls[y][x] = board.isWall(boardX, boardY);
+                this.isVisible[y][x] = visibility || board.isVisible(boardX, boardY);
             }
         }
 
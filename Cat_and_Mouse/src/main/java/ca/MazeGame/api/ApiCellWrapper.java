@@ -0,0 +1,22 @@
+package ca.MazeGame.api;
+import ca.MazeGame.model.Board;
+
+/**
+ * Wrapper for the state of a single board cell, used to send changed cells in board deltas.
+ */
+
+public class ApiCellWrapper {
+    public int x;
+    public int y;
+    public boolean hasWall;
+    public boolean isVisible;
+
+    public static ApiCellWrapper makeFromBoardIndex(Board board, int index, boolean visibility) {
+        ApiCellWrapper cell = new ApiCellWrapper();
+        cell.x = board.xOf(index);
+        cell.y = board.yOf(index);
+        cell.hasWall = board.isWall(index);
+        cell.isVisible = visibility || board.isVisible(index);
+        return cell;
+    }
+}
@@ -0,0 +1,50 @@
+package ca.MazeGame.api;
+import ca.MazeGame.services.GameRegistry;
+import ca.MazeGame.services.GameStore;
+import ca.MazeGame.services.ResponseCache;
+
+/**
+ * Wrapper for the game store's size and eviction counters, used to size the heap, and for the
+ * counters of the serialized response cache and of the on-disk game store.
+ */
+
+public class ApiGameStoreMetricsWrapper {
+    public int liveGames;
+    public int maxGames;
+    public long estimatedBytes;
+    public long maxBytes;
+    public long gamesCreated;
+    public long gamesDeleted;
+    public long gamesEvictedIdle;
+    public long gamesEvictedOverCapacity;
+    public long responseCacheBytes;
+    public long responseCacheHits;
+    public long responseCacheMisses;
+    public boolean isStoreEnabled;
+    public long storeSnapshotsWritten;
+    public long storeGamesRestored;
+    public long storeCheckpointsWritten;
+    public long storeLogBytes;
+
+    public static ApiGameStoreMetricsWrapper makeFromRegistry(GameRegistry registry, ResponseCache responseCache,
+                                                              GameStore gameStore) {
+        ApiGameStoreMetricsWrapper wrapper = new ApiGameStoreMetricsWrapper();
+        wrapper.liveGames = registry.size();
+        wrapper.maxGames = registry.getMaxGames();
+        wrapper.estimatedBytes = registry.getEstimatedBytes();
+        wrapper.maxBytes = registry.getMaxBytes();
+        wrapper.gamesCreated = registry.getGamesCreated();
+        wrapper.gamesDeleted = registry.getGamesDeleted();
+        wrapper.gamesEvictedIdle = registry.getGamesEvictedIdle();
+        wrapper.gamesEvictedOverCapacity = registry.getGamesEvictedOverCapacity();
+        wrapper.responseCacheBytes = responseCache.getCachedBytes();
+        wrapper.responseCacheHits = responseCache.getHits();
+        wrapper.responseCacheMisses = responseCache.getMisses();
+        wrapper.isStoreEnabled = gameStore.isEnabled();
+        wrapper.storeSnapshotsWritten = gameStore.getSnapshotsWritten();
+        wrapper.storeGamesRestored = gameStore.getGamesRestored();
+        wrapper.storeCheckpointsWritten = gameStore.getCheckpointsWritten();
+        wrapper.storeLogBytes = gameStore.getLogBytes();
+        return wrapper;
+    }
+}
@@ -0,0 +1,24 @@
+package ca.MazeGame.api;
+
+/**
+ * Lightweight summary of one game for listings: its id, status and cheese counts, without the
+ * maze or the board.
+ */
+
+public class ApiGameSummaryWrapper {
+    public long gameNumber;
+    public boolean isGameWon;
+    public boolean isGameLost;
+    public int numCheeseFound;
+    public int numCheeseGoal;
+
+    public static ApiGameSummaryWrapper makeFromGame(ApiGameWrapper game) {
+        ApiGameSummaryWrapper wrapper = new ApiGameSummaryWrapper();
+        wrapper.gameNumber = game.gameNumber;
+        wrapper.isGameWon = game.isGameWon;
+        wrapper.isGameLost = game.isGameLost;
+        wrapper.numCheeseFound = game.numCheeseFound;
+        wrapper.numCheeseGoal = game.numCheeseGoal;
+        return wrapper;
+    }
+}
@@ -0,0 +1,34 @@
+package ca.MazeGame.api;
+import ca.MazeGame.services.GameTicker;
+
+/**
+ * Wrapper for the cat ticker's settings and its tick lag and tick duration counters.
+ */
+
+public class ApiGameTickerMetricsWrapper {
+    public boolean enabled;
+    public long intervalMillis;
+    public int shards;
+    public int tickedGames;
+    public long ticks;
+    public long gamesTicked;
+    public long averageTickLagMicros;
+    public long maxTickLagMicros;
+    public long averageTickDurationMicros;
+    public long maxTickDurationMicros;
+
+    public static ApiGameTickerMetricsWrapper makeFromTicker(GameTicker ticker) {
+        ApiGameTickerMetricsWrapper wrapper = new ApiGameTickerMetricsWrapper();
+        wrapper.enabled = ticker.isEnabled();
+        wrapper.intervalMillis = ticker.getIntervalMillis();
+        wrapper.shards = ticker.getShardCount();
+        wrapper.tickedGames = ticker.getTickedGames();
+        wrapper.ticks = ticker.getTicks();
+        wrapper.gamesTicked = ticker.getGamesTicked();
+        wrapper.averageTickLagMicros = ticker.getAverageTickLagMicros();
+        wrapper.maxTickLagMicros = ticker.getMaxTickLagMicros();
+        wrapper.averageTickDurationMicros = ticker.getAverageTickDurationMicros();
+        wrapper.maxTickDurationMicros = ticker.getMaxTickDurationMicros();
+        return wrapper;
+    }
+}
@@ -0,0 +1,30 @@
+package ca.MazeGame.api;
+
+/**
+ * Wrapper for one update pushed to a game socket: the game's status plus the board changes since
+ * the last update sent on that socket. isMoveRejected answers a move from the socket that was
+ * unknown or ran into a wall.
+ */
+
+public class ApiGameUpdateWrapper {
+    public long gameNumber;
+    public boolean isGameWon;
+    public boolean isGameLost;
+    public int numCheeseFound;
+    public int numCheeseGoal;
+    public boolean isMoveRejected;
+    public ApiBoardDeltaWrapper board;
+
+    public static ApiGameUpdateWrapper makeFromGame(ApiGameWrapper game, ApiBoardDeltaWrapper board,
+                                                    boolean isMoveRejected) {
+        ApiGameUpdateWrapper wrapper = new ApiGameUpdateWrapper();
+        wrapper.gameNumber = game.gameNumber;
+        wrapper.isGameWon = game.isGameWon;
+        wrapper.isGameLost = game.isGameLost;
+        wrapper.numCheeseFound = game.numCheeseFound;
+        wrapper.numCheeseGoal = game.numCheeseGoal;
+        wrapper.isMoveRejected = isMoveRejected;
+        wrapper.board = board;
+        return wrapper;
+    }
+}
@@ -1,44 +1,193 @@
 package ca.MazeGame.api;
+import ca.MazeGame.model.GameRecording;
+import ca.MazeGame.model.GameSnapshot;
 import ca.MazeGame.model.MazeGame;
 import ca.MazeGame.model.MoveDirection;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Wrapper for the MazeGame Class, stores a model of the game in the modelGame variable,
  * used to update player location through user input and update cat locations. Also contains
  * 2 cheat methods which functions as listed in the REST API documentation.
+ * Methods that change the game are synchronized on the wrapper, so each game has its own lock.
+ * The full board is only built when a client asks for it, and is reused until the game's version
+ * changes; clients that already have a board can ask for the changes since their version instead.
+ * Update listeners (such as open game sockets) are told after every change.
+ * Once the game has been removed and its last snapshot taken, the wrapper is retired and every
+ * change to it throws RetiredGameException rather than being silently lost.
  */
 
 public class ApiGameWrapper {
-    public int gameNumber;
+    public long gameNumber;
     public boolean isGameWon;
     public boolean isGameLost;
     public int numCheeseFound;
     public int numCheeseGoal;
-    public ApiBoardWrapper boardWrapper;
     public MazeGame modelGame;
-    private boolean allVisible = false;
+    private ApiBoardWrapper boardWrapper;
+    private boolean isRetired;
+    private final List<GameUpdateListener> updateListeners = new CopyOnWriteArrayList<>();
 
-    public static ApiGameWrapper makeFromGame(MazeGame game, int id) {
+    public static ApiGameWrapper makeFromGame(MazeGame game, long id) {
         ApiGameWrapper wrapper = new ApiGameWrapper();
         wrapper.gameNumber = id;
         wrapper.numCheeseFound = game.getNumberCheeseCollected();
         wrapper.numCheeseGoal = game.getNumberCheeseToCollect();
         wrapper.isGameLost = game.hasUserLost();
         wrapper.isGameWon = game.hasUserWon();
-        wrapper.boardWrapper = ApiBoardWrapper.makeFromGame(game, wrapper.allVisible);
         wrapper.modelGame = game;
         return wrapper;
     }
 
+    // Saved form of the game: see GameSnapshot. Sized and written under one hold of the lock, so a
+    // move cannot grow the game in between.
+    public synchronized ByteBuffer makeSnapshot() {
+        ByteBuffer snapshot = ByteBuffer.allocate(GameSnapshot.estimateSize(modelGame)).order(ByteOrder.LITTLE_ENDIAN);
+        GameSnapshot.write(modelGame, snapshot);
+        snapshot.flip();
+        return snapshot;
+    }
+
+    // The last snapshot of a removed game: no change made after it is accepted.
+    public synchronized ByteBuffer retire() {
+        isRetired = true;
+        return makeSnapshot();
+    }
+
+    private void checkNotRetired() {
+        if (isRetired) {
+            throw new RetiredGameException(gameNumber);
+        }
+    }
+
+    public static ApiGameWrapper restoreFromSnapshot(ByteBuffer in, long id) {
+        return makeFromGame(GameSnapshot.read(in), id);
+    }
+
     private void updateVariables(){
-        this.boardWrapper = ApiBoardWrapper.makeFromGame(modelGame, allVisible);
         this.numCheeseGoal = modelGame.getNumberCheeseToCollect();
         this.numCheeseFound = modelGame.getNumberCheeseCollected();
         this.isGameWon = modelGame.hasUserWon();
         this.isGameLost = modelGame.hasUserLost();
+        notifyUpdateListeners();
+    }
+
+    private void notifyUpdateListeners() {
+        for (GameUpdateListener listener : updateListeners) {
+            listener.onGameUpdated(this);
+        }
+    }
+
+    public void addUpdateListener(GameUpdateListener listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeUpdateListener(GameUpdateListener listener) {
+        updateListeners.remove(listener);
+    }
+
+    public synchronized ApiGameSummaryWrapper makeSummary() {
+        return ApiGameSummaryWrapper.makeFromGame(this);
+    }
+
+    // Estimated heap used by this game, for sizing the game store. Counts the full board
+    // wrapper as if it had been built, since any client can ask for it.
+    public long estimateMemoryBytes() {
+        final int BYTES_PER_ROW = 16;
+        long width = modelGame.getMazeWidth();
+        long height = modelGame.getMazeHeight();
+        return modelGame.estimateMemoryBytes() + 2 * height * (width + BYTES_PER_ROW);
+    }
+
+    // Full board, reused until the game changes. Not a bean getter, so the game's own JSON does
+    // not carry the board; clients fetch it from the board endpoint.
+    public synchronized ApiBoardWrapper makeFullBoardView() {
+        if (boardWrapper == null || boardWrapper.version != modelGame.getVersion()) {
+            boardWrapper = ApiBoardWrapper.makeFromGame(modelGame, modelGame.hasRevealedAll());
+        }
+        return boardWrapper;
+    }
+
+    public synchronized ApiBoardDeltaWrapper makeBoardDelta(long sinceVersion) {
+        return ApiBoardDeltaWrapper.makeFromGame(modelGame, modelGame.hasRevealedAll(), sinceVersion);
+    }
+
+    public synchronized ApiGameUpdateWrapper makeGameUpdate(long sinceVersion, boolean isMoveRejected) {
+        return ApiGameUpdateWrapper.makeFromGame(this, makeBoardDelta(sinceVersion), isMoveRejected);
     }
 
-    public boolean makeAMove(MoveDirection move){
+    // Copy of the game's start and inputs, or null if it cannot be replayed. Replaying the copy
+    // does not hold this game's lock.
+    public synchronized GameRecording makeRecording() {
+        return modelGame.makeRecording();
+    }
+
+    // Held under the game's lock: the maze's corridor graph keeps search state between queries.
+    public synchronized ApiHintWrapper makeHint() {
+        return ApiHintWrapper.makeFromGame(modelGame);
+    }
+
+    public synchronized long getVersion() {
+        return modelGame.getVersion();
+    }
+
+    // Apply a move as sent by clients: MOVE_CATS, or MOVE_UP/DOWN/LEFT/RIGHT for the mouse.
+    // Returns false for an unknown command or a move into a wall.
+    public boolean applyMoveCommand(String command) {
+        if (command.equals("MOVE_CATS")) {
+            moveCats();
+            return true;
+        }
+        MoveDirection direction = parseMoveDirection(command);
+        return direction != null && makeAMove(direction);
+    }
+
+    public static boolean isMoveCommand(String command) {
+        return command.equals("MOVE_CATS") || parseMoveDirection(command) != null;
+    }
+
+    // Apply a sequence of move commands under one lock, stopping at the first move that is rejected
+    // or once the game is over. The result carries the board changes since the given version, or
+    // since the batch started when sinceVersion is null.
+    public synchronized ApiMoveBatchResultWrapper applyMoveBatch(List<String> commands, Long sinceVersion) {
+        checkNotRetired();
+        long startVersion = (sinceVersion == null) ? modelGame.getVersion() : sinceVersion;
+        int movesApplied = 0;
+        boolean isMoveRejected = false;
+        for (String command : commands) {
+            if (isGameWon || isGameLost) {
+                break;
+            }
+            if (!applyMoveCommand(command)) {
+                isMoveRejected = true;
+                break;
+            }
+            movesApplied++;
+        }
+        return ApiMoveBatchResultWrapper.makeFromGame(this, makeBoardDelta(startVersion),
+                movesApplied, isMoveRejected);
+    }
+
+    private static MoveDirection parseMoveDirection(String move) {
+        switch (move) {
+            case "MOVE_UP":
+                return MoveDirection.MOVE_UP;
+            case "MOVE_DOWN":
+                return MoveDirection.MOVE_DOWN;
+            case "MOVE_LEFT":
+                return MoveDirection.MOVE_LEFT;
+            case "MOVE_RIGHT":
+                return MoveDirection.MOVE_RIGHT;
+        }
+        return null;
+    }
+
+    public synchronized boolean makeAMove(MoveDirection move){
+        checkNotRetired();
         if (modelGame.recordPlayerMove(move)){
             updateVariables();
             return true;
@@ -46,25 +195,40 @@ public class ApiGameWrapper {
         return false;
     }
 
-    public void moveCats(){
+    public synchronized void moveCats(){
+        checkNotRetired();
         modelGame.doCatMoves();
         updateVariables();
     }
 
-    public void setNumOfCheese(int cheeseNum){
+    // Cat move driven by the server clock: does nothing once the game is won, lost or retired.
+    public synchronized boolean tickCats(){
+        if (isGameWon || isGameLost || isRetired) {
+            return false;
+        }
+        moveCats();
+        return true;
+    }
+
+    public synchronized void setNumOfCheese(int cheeseNum){
+        checkNotRetired();
         modelGame.setNumberCheeseToCollect(cheeseNum);
         updateVariables();
     }
 
-    public void setAllVisible() {
-        this.boardWrapper = ApiBoardWrapper.makeFromGame(modelGame, true);
-        this.allVisible = true;
+    // Walls and visibility for part of the board only, for clients of large boards.
+    public synchronized ApiBoardWrapper makeBoardView(int left, int top, int width, int height) {
+        return ApiBoardWrapper.makeFromGame(modelGame, modelGame.hasRevealedAll(), left, top, width, height);
     }
 
+    // Same view as makeBoardView, in the compact binary encoding.
+    public synchronized byte[] makeBinaryBoardView(int left, int top, int width, int height) {
+        return ApiBoardBinaryEncoder.encode(modelGame, modelGame.hasRevealedAll(), left, top, width, height);
+    }
 
-
-
-
-
-
+    public synchronized void setAllVisible() {
+        checkNotRetired();
+        modelGame.revealAll();
+        notifyUpdateListeners();
+    }
 }
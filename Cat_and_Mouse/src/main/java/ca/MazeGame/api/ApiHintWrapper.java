@@ -0,0 +1,19 @@
+package ca.MazeGame.api;
+import ca.MazeGame.model.MazeGame;
+
+/**
+ * Wrapper for a hint: the mouse's first move on a shortest path to the cheese, as a move command
+ * (MOVE_NONE when there is none), and how many moves away the cheese is.
+ */
+
+public class ApiHintWrapper {
+    public String move;
+    public int distance;
+
+    public static ApiHintWrapper makeFromGame(MazeGame game) {
+        ApiHintWrapper wrapper = new ApiHintWrapper();
+        wrapper.move = game.findMoveTowardsCheese().name();
+        wrapper.distance = game.findDistanceToCheese();
+        return wrapper;
+    }
+}
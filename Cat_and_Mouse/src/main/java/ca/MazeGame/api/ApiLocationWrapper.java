@@ -18,14 +18,11 @@ public class ApiLocationWrapper {
         location.y = cell.getY();
         return location;
     }
-    // MAY NEED TO CHANGE PARAMETERS HERE TO SUITE YOUR PROJECT
+    // One wrapper per cell, in the order given.
     public static List<ApiLocationWrapper> makeFromCellLocations(Iterable<CellLocation> cells) {
         List<ApiLocationWrapper> locations = new ArrayList<>();
-        for (ApiLocationWrapper location : locations){
-            for(CellLocation cell : cells){
-                location.x = cell.getX();
-                location.y = cell.getY();
-            }
+        for (CellLocation cell : cells){
+            locations.add(makeFromCellLocation(cell));
         }
         return locations;
     }
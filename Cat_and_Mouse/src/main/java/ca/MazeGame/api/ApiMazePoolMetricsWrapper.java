@@ -0,0 +1,28 @@
+package ca.MazeGame.api;
+import ca.MazeGame.services.MazePool;
+
+/**
+ * Wrapper for the maze pool's hit/miss and refill counters, used to tune the pool size.
+ */
+
+public class ApiMazePoolMetricsWrapper {
+    public long hits;
+    public long misses;
+    public long refills;
+    public long averageRefillLagMicros;
+    public long maxRefillLagMicros;
+    public int pooledMazes;
+    public int pooledSizes;
+
+    public static ApiMazePoolMetricsWrapper makeFromPool(MazePool pool) {
+        ApiMazePoolMetricsWrapper wrapper = new ApiMazePoolMetricsWrapper();
+        wrapper.hits = pool.getHits();
+        wrapper.misses = pool.getMisses();
+        wrapper.refills = pool.getRefills();
+        wrapper.averageRefillLagMicros = pool.getAverageRefillLagMicros();
+        wrapper.maxRefillLagMicros = pool.getMaxRefillLagMicros();
+        wrapper.pooledMazes = pool.getPooledMazes();
+        wrapper.pooledSizes = pool.getPooledSizes();
+        return wrapper;
+    }
+}
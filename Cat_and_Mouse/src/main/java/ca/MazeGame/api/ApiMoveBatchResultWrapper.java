@@ -0,0 +1,31 @@
+package ca.MazeGame.api;
+
+/**
+ * Wrapper for the result of a batch of moves on one game: how many of the moves were applied,
+ * whether the batch stopped at a rejected move, and the game's status and board changes afterwards.
+ */
+
+public class ApiMoveBatchResultWrapper {
+    public long gameNumber;
+    public int movesApplied;
+    public boolean isMoveRejected;
+    public boolean isGameWon;
+    public boolean isGameLost;
+    public int numCheeseFound;
+    public int numCheeseGoal;
+    public ApiBoardDeltaWrapper board;
+
+    public static ApiMoveBatchResultWrapper makeFromGame(ApiGameWrapper game, ApiBoardDeltaWrapper board,
+                                                         int movesApplied, boolean isMoveRejected) {
+        ApiMoveBatchResultWrapper wrapper = new ApiMoveBatchResultWrapper();
+        wrapper.gameNumber = game.gameNumber;
+        wrapper.movesApplied = movesApplied;
+        wrapper.isMoveRejected = isMoveRejected;
+        wrapper.isGameWon = game.isGameWon;
+        wrapper.isGameLost = game.isGameLost;
+        wrapper.numCheeseFound = game.numCheeseFound;
+        wrapper.numCheeseGoal = game.numCheeseGoal;
+        wrapper.board = board;
+        return wrapper;
+    }
+}
@@ -0,0 +1,51 @@
+package ca.MazeGame.api;
+import ca.MazeGame.model.SimulationStats;
+
+/**
+ * Wrapper for the results of a batch of simulated games, used to tune difficulty.
+ */
+
+public class ApiSimulationWrapper {
+    public String policy;
+    public String catStrategy;
+    public long seed;
+    public long games;
+    public long wins;
+    public long losses;
+    public long unfinished;
+    public double winRate;
+    public double lossRate;
+    public double meanGameLength;
+    public double meanStepsToWin;
+    public double cheesePerMove;
+    public long shortestGame;
+    public long longestGame;
+    public long[] gameLengthHistogram;
+    public long totalSteps;
+    public long elapsedMillis;
+    public long stepsPerSecond;
+
+    public static ApiSimulationWrapper makeFromStats(SimulationStats stats, String policy, String catStrategy,
+                                                     long seed) {
+        ApiSimulationWrapper wrapper = new ApiSimulationWrapper();
+        wrapper.policy = policy;
+        wrapper.catStrategy = catStrategy;
+        wrapper.seed = seed;
+        wrapper.games = stats.getGames();
+        wrapper.wins = stats.getWins();
+        wrapper.losses = stats.getLosses();
+        wrapper.unfinished = stats.getUnfinished();
+        wrapper.winRate = stats.getWinRate();
+        wrapper.lossRate = stats.getLossRate();
+        wrapper.meanGameLength = stats.getMeanGameLength();
+        wrapper.meanStepsToWin = stats.getMeanStepsToWin();
+        wrapper.cheesePerMove = stats.getCheesePerMove();
+        wrapper.shortestGame = stats.getShortestGame();
+        wrapper.longestGame = stats.getLongestGame();
+        wrapper.gameLengthHistogram = stats.getLengthHistogram();
+        wrapper.totalSteps = stats.getTotalSteps();
+        wrapper.elapsedMillis = stats.getElapsedNanos() / 1_000_000;
+        wrapper.stepsPerSecond = (long) stats.getStepsPerSecond();
+        return wrapper;
+    }
+}
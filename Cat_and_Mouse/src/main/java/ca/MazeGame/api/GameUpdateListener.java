@@ -0,0 +1,9 @@
+package ca.MazeGame.api;
+
+/**
+ * Told after every change to a game. Called while the game's lock is held, so implementations
+ * should only note the change and do any real work (such as sending) elsewhere.
+ */
+public interface GameUpdateListener {
+    void onGameUpdated(ApiGameWrapper game);
+}
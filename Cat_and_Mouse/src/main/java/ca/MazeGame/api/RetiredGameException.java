@@ -0,0 +1,14 @@
+package ca.MazeGame.api;
+
+/**
+ * Thrown by a change to a game whose wrapper has been retired: the game was removed from the
+ * registry and its last snapshot taken, so the change would be lost. Look the game up again
+ * (GameRegistry.update does this) to change the copy loaded back from that snapshot.
+ */
+public class RetiredGameException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public RetiredGameException(long gameId) {
+        super("Game " + gameId + " was removed while it was being changed");
+    }
+}
@@ -1,27 +1,94 @@
 package ca.MazeGame.controllers;
+import ca.MazeGame.api.ApiBoardDeltaWrapper;
 import ca.MazeGame.api.ApiBoardWrapper;
+import ca.MazeGame.api.ApiGameStoreMetricsWrapper;
+import ca.MazeGame.api.ApiGameSummaryWrapper;
+import ca.MazeGame.api.ApiGameTickerMetricsWrapper;
 import ca.MazeGame.api.ApiGameWrapper;
+import ca.MazeGame.api.ApiHintWrapper;
+import ca.MazeGame.api.ApiMazePoolMetricsWrapper;
+import ca.MazeGame.api.ApiMoveBatchResultWrapper;
+import ca.MazeGame.api.ApiSimulationWrapper;
+import ca.MazeGame.model.CatStrategyType;
+import ca.MazeGame.model.CheeseSeekingMousePolicy;
+import ca.MazeGame.model.GameRecording;
+import ca.MazeGame.model.Maze;
+import ca.MazeGame.model.GameSimulator;
 import ca.MazeGame.model.MazeGame;
-import ca.MazeGame.model.MoveDirection;
+import ca.MazeGame.model.MousePolicy;
+import ca.MazeGame.model.RandomMousePolicy;
+import ca.MazeGame.model.SightRange;
+import ca.MazeGame.services.GameRegistry;
+import ca.MazeGame.services.GameStore;
+import ca.MazeGame.services.GameTicker;
+import ca.MazeGame.services.MazePool;
+import ca.MazeGame.services.ResponseCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
- * GameController class containing all the methods as listed in the REST API documentation with
- * an additional getMoveDirection method to help with the /api/games/{id}/moves endpoint, as well as 2
- * Exception Handlers handling illegal arguments and bad inputs/requests.
+ * GameController class containing all the methods as listed in the REST API documentation, as well as 2
+ * Exception Handlers handling illegal arguments and bad inputs/requests. Games are looked up by id
+ * through the GameRegistry, and each game's wrapper serializes the work done on that game.
  *
  */
 
 @RestController
 public class GameController {
-    private Map<Integer , ApiGameWrapper > gameWrappers = new HashMap<>();
-    private AtomicLong nextId = new AtomicLong();
+    private static final int MAX_MAZE_SIZE = 2000;
+    // JSON spends about 11 bytes a cell on walls and visibility, so a view of more cells than this
+    // has to be fetched in windows or in the binary encoding.
+    private static final long MAX_JSON_BOARD_CELLS = 250_000;
+    // A replay is rebuilt on every request, one input at a time, so it is capped well below what a
+    // full move log can hold.
+    private static final long MAX_REPLAY_INPUTS = 1_000_000;
+    private static final int MAX_NUM_CATS = 1000;
+    private static final int MAX_NUM_CHEESE_ON_BOARD = 100;
+    private static final int MAX_BATCH_MOVES = 10000;
+    private static final int MAX_SUMMARY_PAGE = 1000;
+    private static final int MAX_SUMMARY_SCAN = 10_000;
+    private static final long MAX_SIMULATED_GAMES = 100_000;
+    private static final long MAX_SIMULATED_STEPS = 100_000_000L;
+    // Every simulated game lays out its own maze, so the cells laid out are capped as well as the steps.
+    private static final long MAX_SIMULATED_CELLS = 50_000_000L;
+    // A simulated game only ends early once its goal is met, so the goal is kept within reach.
+    private static final int MAX_SIMULATED_CHEESE_GOAL = 10_000;
+
+    private final GameRegistry gameRegistry;
+    private final MazePool mazePool;
+    private final GameTicker gameTicker;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final GameStore gameStore;
+    private final String instanceTag = Long.toHexString(System.currentTimeMillis());
+
+    public GameController(GameRegistry gameRegistry, MazePool mazePool, GameTicker gameTicker,
+                          ObjectMapper objectMapper, ResponseCache responseCache, GameStore gameStore) {
+        this.gameRegistry = gameRegistry;
+        this.mazePool = mazePool;
+        this.gameTicker = gameTicker;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.gameStore = gameStore;
+        mazePool.prefill(MazeGame.DEFAULT_MAZE_WIDTH, MazeGame.DEFAULT_MAZE_HEIGHT);
+    }
 
     @GetMapping("/api/about")
     public String getAbout (){
@@ -29,106 +96,386 @@ public class GameController {
     }
 
     @GetMapping("/api/games")
-    public Map<Integer, ApiGameWrapper> getAllGames(){
-        return gameWrappers;
+    public Map<Long, ApiGameWrapper> getAllGames(){
+        return gameRegistry.getAllGames();
+    }
+
+    // One page of game summaries in id order, streamed as it is read from the registry.
+    // Pass the returned nextCursor as "after" to get the next page; it is null on the last page.
+    // status is one of all, active, won or lost. A page looks at no more than MAX_SUMMARY_SCAN games,
+    // so when the status filter skips most of them it can hold fewer than limit games, or none.
+    @GetMapping("/api/games/summaries")
+    public ResponseEntity<StreamingResponseBody> getGameSummaries(
+            @RequestParam(value = "after", defaultValue = "0") long afterId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "status", defaultValue = "all") String status) throws IOException {
+        if (limit < 1 || limit > MAX_SUMMARY_PAGE || !isSummaryStatus(status)) {
+            throw new IOException();
+        }
+        Iterator<ApiGameWrapper> games = gameRegistry.iterateGamesAfter(afterId);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("games");
+                int written = 0;
+                int scanned = 0;
+                long lastId = afterId;
+                while (written < limit && scanned < MAX_SUMMARY_SCAN && games.hasNext()) {
+                    ApiGameSummaryWrapper summary = games.next().makeSummary();
+                    lastId = summary.gameNumber;
+                    scanned++;
+                    if (matchesSummaryStatus(summary, status)) {
+                        json.writeObject(summary);
+                        written++;
+                    }
+                }
+                json.writeEndArray();
+                if (games.hasNext()) {
+                    json.writeNumberField("nextCursor", lastId);
+                } else {
+                    json.writeNullField("nextCursor");
+                }
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    // The version is read before the response is built, and versions only go up, so a response is
+    // never labelled with a newer version than the state it holds. The instance tag keeps tags from
+    // before a restart, when ids and versions start again, from matching.
+    private String makeETag(long gameId, String representation, long version) {
+        return "\"" + gameId + "-" + representation + "-" + instanceTag + "-" + version + "\"";
+    }
+
+    private static ResponseEntity<byte[]> makeJsonResponse(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    private static boolean isSummaryStatus(String status) {
+        return status.equals("all") || status.equals("active") || status.equals("won") || status.equals("lost");
+    }
+
+    private static boolean matchesSummaryStatus(ApiGameSummaryWrapper summary, String status) {
+        switch (status) {
+            case "active":
+                return !summary.isGameWon && !summary.isGameLost;
+            case "won":
+                return summary.isGameWon;
+            case "lost":
+                return summary.isGameLost;
+        }
+        return true;
     }
 
     @ResponseStatus(value = HttpStatus.CREATED)
     @PostMapping("/api/games")
-    public ApiGameWrapper createNewGame(){
-        MazeGame newGame = new MazeGame();
-        int id = (int)nextId.incrementAndGet();
-        ApiGameWrapper newWrapper = ApiGameWrapper.makeFromGame(newGame, id);
-        gameWrappers.put(id, newWrapper);
-        return newWrapper;
+    public ApiGameWrapper createNewGame(
+            @RequestParam(value = "width", defaultValue = "" + MazeGame.DEFAULT_MAZE_WIDTH) int width,
+            @RequestParam(value = "height", defaultValue = "" + MazeGame.DEFAULT_MAZE_HEIGHT) int height,
+            @RequestParam(value = "cats", defaultValue = "" + MazeGame.DEFAULT_NUM_CATS) int numCats,
+            @RequestParam(value = "cheese", defaultValue = "" + MazeGame.DEFAULT_NUM_CHEESE_TO_COLLECT) int cheeseGoal,
+            @RequestParam(value = "catStrategy", defaultValue = "random") String catStrategyName,
+            @RequestParam(value = "cheeseOnBoard", defaultValue = "" + MazeGame.DEFAULT_NUM_CHEESE_ON_BOARD)
+                    int cheeseOnBoard,
+            @RequestParam(value = "sight", defaultValue = "1") int sightRadius,
+            @RequestParam(value = "lineOfSight", defaultValue = "false") boolean isLineOfSight)
+            throws IOException {
+        boolean badSize = width < Maze.MIN_SIZE || height < Maze.MIN_SIZE
+                || width > MAX_MAZE_SIZE || height > MAX_MAZE_SIZE;
+        boolean badSight = sightRadius < 1 || sightRadius > SightRange.MAX_RADIUS;
+        if (badSize || badSight || numCats < 0 || numCats > MAX_NUM_CATS || cheeseGoal < 1
+                || !isCheeseOnBoard(cheeseOnBoard)) {
+            throw new IOException();
+        }
+        CatStrategyType catStrategyType = parseCatStrategy(catStrategyName);
+        MazeGame newGame = new MazeGame(mazePool.take(width, height), numCats, cheeseGoal, catStrategyType,
+                cheeseOnBoard, SightRange.of(sightRadius, isLineOfSight));
+        return gameRegistry.register(newGame);
     }
 
+    // How many cheeses lie on the board at once; a small board may end up holding fewer.
+    private static boolean isCheeseOnBoard(int cheeseOnBoard) {
+        return cheeseOnBoard >= 1 && cheeseOnBoard <= MAX_NUM_CHEESE_ON_BOARD;
+    }
+
+    // Cat strategies are "random" (each cat wanders), "pursuit" (cats chase the mouse) and
+    // "corridor" (the same chase, cheaper for a few cats on a large board).
+    private static CatStrategyType parseCatStrategy(String name) throws IOException {
+        try {
+            return CatStrategyType.fromName(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Every game and board response carries a strong ETag built from the game's version, so clients
+    // that send it back in If-None-Match get a 304 without the game or board being serialized.
     @GetMapping("/api/games/{id}")
-    public ApiGameWrapper getOneGame(@PathVariable("id") long gameId){
-        for (int id : gameWrappers.keySet()){
-            if(id == gameId){
-                return gameWrappers.get(id);
-            }
+    public ResponseEntity<byte[]> getOneGame(@PathVariable("id") long gameId, WebRequest request)
+            throws IOException {
+        ApiGameWrapper gameWrapper = gameRegistry.get(gameId);
+        long version = gameWrapper.getVersion();
+        if (request.checkNotModified(makeETag(gameId, "game", version))) {
+            return null;
+        }
+        byte[] body = responseCache.find(gameId, ResponseCache.Kind.GAME_JSON, version);
+        if (body == null) {
+            body = objectMapper.writeValueAsBytes(gameWrapper);
+            responseCache.store(gameId, ResponseCache.Kind.GAME_JSON, version, body);
         }
-        throw new IllegalArgumentException();
+        return makeJsonResponse(body);
+    }
+
+
+    @DeleteMapping("/api/games/{id}")
+    @ResponseStatus(value = HttpStatus.NO_CONTENT)
+    public void deleteGame(@PathVariable("id") long gameId){
+        gameRegistry.delete(gameId);
     }
 
+    @GetMapping("/api/metrics/games")
+    public ApiGameStoreMetricsWrapper getGameStoreMetrics(){
+        return ApiGameStoreMetricsWrapper.makeFromRegistry(gameRegistry, responseCache, gameStore);
+    }
+
+    @GetMapping("/api/metrics/mazes")
+    public ApiMazePoolMetricsWrapper getMazePoolMetrics(){
+        return ApiMazePoolMetricsWrapper.makeFromPool(mazePool);
+    }
+
+    @GetMapping("/api/metrics/ticks")
+    public ApiGameTickerMetricsWrapper getGameTickerMetrics(){
+        return ApiGameTickerMetricsWrapper.makeFromTicker(gameTicker);
+    }
+
+    // Play games with no clients to see how hard a setup is: policy "seek" heads for the cheese,
+    // making a random move with the given chance, and "random" wanders. Runs on the common fork-join
+    // pool, and games x maxSteps and games x width x height are capped so one request cannot tie it
+    // up for long.
+    @GetMapping("/api/simulations")
+    public ApiSimulationWrapper simulateGames(
+            @RequestParam(value = "games", defaultValue = "1000") long numGames,
+            @RequestParam(value = "policy", defaultValue = "seek") String policyName,
+            @RequestParam(value = "randomness", defaultValue = "0.1") double randomMoveChance,
+            @RequestParam(value = "width", defaultValue = "" + MazeGame.DEFAULT_MAZE_WIDTH) int width,
+            @RequestParam(value = "height", defaultValue = "" + MazeGame.DEFAULT_MAZE_HEIGHT) int height,
+            @RequestParam(value = "cats", defaultValue = "" + MazeGame.DEFAULT_NUM_CATS) int numCats,
+            @RequestParam(value = "cheese", defaultValue = "" + MazeGame.DEFAULT_NUM_CHEESE_TO_COLLECT) int cheeseGoal,
+            @RequestParam(value = "maxSteps", defaultValue = "10000") long maxSteps,
+            @RequestParam(value = "catStrategy", defaultValue = "random") String catStrategyName,
+            @RequestParam(value = "cheeseOnBoard", defaultValue = "" + MazeGame.DEFAULT_NUM_CHEESE_ON_BOARD)
+                    int cheeseOnBoard,
+            @RequestParam(value = "seed", required = false) Long seed)
+            throws IOException {
+        boolean badSize = width < Maze.MIN_SIZE || height < Maze.MIN_SIZE
+                || width > MAX_MAZE_SIZE || height > MAX_MAZE_SIZE;
+        boolean badWork = numGames < 1 || numGames > MAX_SIMULATED_GAMES
+                || maxSteps < 1 || maxSteps > MAX_SIMULATED_STEPS / numGames
+                || numGames * width * height > MAX_SIMULATED_CELLS;
+        if (badSize || badWork || numCats < 0 || numCats > MAX_NUM_CATS || cheeseGoal < 1
+                || cheeseGoal > MAX_SIMULATED_CHEESE_GOAL || !isCheeseOnBoard(cheeseOnBoard) || randomMoveChance < 0 || randomMoveChance > 1) {
+            throw new IOException();
+        }
+        Supplier<MousePolicy> policies;
+        switch (policyName) {
+            case "seek":
+                policies = () -> new CheeseSeekingMousePolicy(randomMoveChance);
+                break;
+            case "random":
+                policies = RandomMousePolicy::new;
+                break;
+            default:
+                throw new IOException();
+        }
+        CatStrategyType catStrategyType = parseCatStrategy(catStrategyName);
+        long runSeed = (seed == null) ? ThreadLocalRandom.current().nextLong() : seed;
+        GameSimulator simulator = new GameSimulator(width, height, numCats, cheeseGoal, cheeseOnBoard, maxSteps,
+                catStrategyType, policies);
+        return ApiSimulationWrapper.makeFromStats(simulator.run(numGames, runSeed, ForkJoinPool.commonPool()),
+                policyName, catStrategyType.getName(), runSeed);
+    }
 
     @GetMapping("/api/games/{id}/board")
-    public ApiBoardWrapper getCurrentBoard(@PathVariable("id") long gameId){
-        ApiGameWrapper gameWrapper;
-        for (int id: gameWrappers.keySet()) {
-            if (id == gameId) {
-                gameWrapper = gameWrappers.get(id);
-                return gameWrapper.boardWrapper;
+    public ResponseEntity<byte[]> getCurrentBoard(@PathVariable("id") long gameId,
+                                                  @RequestParam(value = "left", required = false) Integer left,
+                                                  @RequestParam(value = "top", required = false) Integer top,
+                                                  @RequestParam(value = "width", required = false) Integer width,
+                                                  @RequestParam(value = "height", required = false) Integer height,
+                                                  WebRequest request) throws IOException {
+        ApiGameWrapper gameWrapper = gameRegistry.get(gameId);
+        long version = gameWrapper.getVersion();
+        if (left == null && top == null && width == null && height == null) {
+            if (isJsonViewTooLarge(gameWrapper.modelGame, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE)) {
+                throw new IOException();
+            }
+            if (request.checkNotModified(makeETag(gameId, "board", version))) {
+                return null;
             }
+            byte[] body = responseCache.find(gameId, ResponseCache.Kind.BOARD_JSON, version);
+            if (body == null) {
+                body = objectMapper.writeValueAsBytes(gameWrapper.makeFullBoardView());
+                responseCache.store(gameId, ResponseCache.Kind.BOARD_JSON, version, body);
+            }
+            return makeJsonResponse(body);
+        }
+
+        // Partial board: any missing bound extends the view to the edge of the board.
+        int viewLeft = (left == null) ? 0 : left;
+        int viewTop = (top == null) ? 0 : top;
+        int viewWidth = (width == null) ? Integer.MAX_VALUE : width;
+        int viewHeight = (height == null) ? Integer.MAX_VALUE : height;
+        if (isJsonViewTooLarge(gameWrapper.modelGame, viewLeft, viewTop, viewWidth, viewHeight)) {
+            throw new IOException();
+        }
+        String representation = "board-" + viewLeft + "," + viewTop + "," + viewWidth + "," + viewHeight;
+        if (request.checkNotModified(makeETag(gameId, representation, version))) {
+            return null;
+        }
+        ApiBoardWrapper view = gameWrapper.makeBoardView(viewLeft, viewTop, viewWidth, viewHeight);
+        return makeJsonResponse(objectMapper.writeValueAsBytes(view));
+    }
+
+    // Cells in the view once clipped to the board, as ApiBoardWrapper clips it.
+    private static boolean isJsonViewTooLarge(MazeGame game, int left, int top, int width, int height) {
+        int boardWidth = game.getMazeWidth();
+        int boardHeight = game.getMazeHeight();
+        long viewWidth = Math.max(0, Math.min(width, boardWidth - Math.min(Math.max(left, 0), boardWidth)));
+        long viewHeight = Math.max(0, Math.min(height, boardHeight - Math.min(Math.max(top, 0), boardHeight)));
+        return viewWidth * viewHeight > MAX_JSON_BOARD_CELLS;
+    }
+
+    // Same board view as above, bit-packed, for clients that send Accept: application/octet-stream.
+    @GetMapping(value = "/api/games/{id}/board", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public byte[] getCurrentBoardBinary(@PathVariable("id") long gameId,
+                                        @RequestParam(value = "left", defaultValue = "0") int left,
+                                        @RequestParam(value = "top", defaultValue = "0") int top,
+                                        @RequestParam(value = "width", defaultValue = "" + Integer.MAX_VALUE) int width,
+                                        @RequestParam(value = "height", defaultValue = "" + Integer.MAX_VALUE) int height,
+                                        WebRequest request){
+        ApiGameWrapper gameWrapper = gameRegistry.get(gameId);
+        String representation = "binary-" + left + "," + top + "," + width + "," + height;
+        if (request.checkNotModified(makeETag(gameId, representation, gameWrapper.getVersion()))) {
+            return null;
+        }
+        return gameWrapper.makeBinaryBoardView(left, top, width, height);
+    }
+
+    // Only the cells changed since the client's version, plus where everything is now.
+    @GetMapping(value = "/api/games/{id}/board", params = "since")
+    public ApiBoardDeltaWrapper getBoardChanges(@PathVariable("id") long gameId,
+                                                @RequestParam("since") long sinceVersion){
+        return gameRegistry.get(gameId).makeBoardDelta(sinceVersion);
+    }
+
+    // The board after the first `inputs` inputs of the game (all of them by default), rebuilt from
+    // the game's seed and move log. 404 when the game cannot be replayed, and 400 when its board is
+    // too large to send as JSON or the replay would run more than MAX_REPLAY_INPUTS inputs.
+    @GetMapping("/api/games/{id}/replay")
+    public ApiBoardWrapper getReplayBoard(@PathVariable("id") long gameId,
+                                          @RequestParam(value = "inputs", required = false) Long numInputs)
+            throws IOException {
+        if (numInputs != null && numInputs < 0) {
+            throw new IOException();
+        }
+        ApiGameWrapper gameWrapper = gameRegistry.get(gameId);
+        if (isJsonViewTooLarge(gameWrapper.modelGame, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE)) {
+            throw new IOException();
         }
-        throw new IllegalArgumentException();
+        GameRecording recording = gameWrapper.makeRecording();
+        if (recording == null) {
+            throw new IllegalArgumentException("Game " + gameId + " cannot be replayed");
+        }
+        long inputsToReplay = Math.min(recording.getInputCount(), numInputs == null ? Long.MAX_VALUE : numInputs);
+        if (inputsToReplay > MAX_REPLAY_INPUTS) {
+            throw new IOException();
+        }
+        MazeGame replay = recording.replay(inputsToReplay);
+        return ApiBoardWrapper.makeFromGame(replay, replay.hasRevealedAll());
+    }
+
+    // Which way the mouse should go for the cheese, and how far it is. Does not change the game.
+    @GetMapping("/api/games/{id}/hint")
+    public ApiHintWrapper getHint(@PathVariable("id") long gameId) {
+        return gameRegistry.get(gameId).makeHint();
     }
 
     @PostMapping("/api/games/{id}/moves")
     @ResponseStatus(value = HttpStatus.ACCEPTED)
     public void makeAMove(@PathVariable("id") long gameId, @RequestBody String move) throws IOException {
-        for (int id : gameWrappers.keySet()) {
-            if (id == gameId) {
-                ApiGameWrapper gameWrapper = gameWrappers.get(id);
-                if(move.equals("MOVE_CATS")){
-                    gameWrapper.moveCats();
-                    return;
-                }
-                else if(move.equals("MOVE_UP") ||
-                        move.equals("MOVE_DOWN") ||
-                        move.equals("MOVE_LEFT") ||
-                        move.equals("MOVE_RIGHT")){
-                    MoveDirection moveDirection = getMoveDirection(move);
-                    if(gameWrapper.makeAMove(moveDirection)){
-                        return;
-                    }
-                    throw new IOException();
-                }
-                else{
-                    throw new IOException();
-                }
-            }
+        if(!gameRegistry.update(gameId, gameWrapper -> gameWrapper.applyMoveCommand(move))){
+            throw new IOException();
+        }
+    }
+
+    // Moves separated by commas or whitespace, e.g. MOVE_UP,MOVE_UP,MOVE_CATS, applied in order
+    // under the game's lock. An unknown move rejects the whole batch before any of it is applied.
+    @PostMapping("/api/games/{id}/moves/batch")
+    public ApiMoveBatchResultWrapper makeMoveBatch(@PathVariable("id") long gameId,
+                                                   @RequestParam(value = "since", required = false) Long sinceVersion,
+                                                   @RequestBody String moves) throws IOException {
+        // A missing game is reported before a bad batch.
+        gameRegistry.get(gameId);
+        List<String> commands = parseMoveBatch(moves);
+        if (commands.size() > MAX_BATCH_MOVES) {
+            throw new IOException();
         }
-        throw new IllegalArgumentException();
+        return gameRegistry.update(gameId, gameWrapper -> gameWrapper.applyMoveBatch(commands, sinceVersion));
     }
 
+    // A batch for each of several games, as a JSON object from game id to moves. Every game is
+    // looked up and every batch checked before any move is applied.
+    @PostMapping("/api/games/moves")
+    public Map<Long, ApiMoveBatchResultWrapper> makeMoveBatches(@RequestBody Map<Long, String> movesByGame)
+            throws IOException {
+        Map<Long, List<String>> batches = new LinkedHashMap<>();
+        int totalMoves = 0;
+        for (Map.Entry<Long, String> entry : movesByGame.entrySet()) {
+            List<String> commands = parseMoveBatch(entry.getValue());
+            totalMoves += commands.size();
+            // Throws for a missing game before any batch is applied.
+            gameRegistry.get(entry.getKey());
+            batches.put(entry.getKey(), commands);
+        }
+        if (totalMoves > MAX_BATCH_MOVES) {
+            throw new IOException();
+        }
 
-    private MoveDirection getMoveDirection (String move){
-        switch(move){
-            case "MOVE_UP":
-                return MoveDirection.MOVE_UP;
-            case "MOVE_DOWN":
-                return MoveDirection.MOVE_DOWN;
-            case "MOVE_LEFT":
-                return MoveDirection.MOVE_LEFT.MOVE_LEFT;
-            case "MOVE_RIGHT":
-                return MoveDirection.MOVE_RIGHT;
+        Map<Long, ApiMoveBatchResultWrapper> results = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<String>> batch : batches.entrySet()) {
+            results.put(batch.getKey(), gameRegistry.update(batch.getKey(),
+                    gameWrapper -> gameWrapper.applyMoveBatch(batch.getValue(), null)));
         }
-        return MoveDirection.MOVE_NONE;
+        return results;
+    }
+
+    private static List<String> parseMoveBatch(String moves) throws IOException {
+        String trimmed = (moves == null) ? "" : moves.trim();
+        List<String> commands = trimmed.isEmpty()
+                ? Collections.<String>emptyList()
+                : Arrays.asList(trimmed.split("[,\\s]+"));
+        for (String command : commands) {
+            if (!ApiGameWrapper.isMoveCommand(command)) {
+                throw new IOException();
+            }
+        }
+        return commands;
     }
 
     @PostMapping("/api/games/{id}/cheatstate")
     @ResponseStatus(value = HttpStatus.ACCEPTED)
     public void postCheatState(@PathVariable("id") long gameId, @RequestBody String cheatRequest) throws IOException{
-        for(int id : gameWrappers.keySet()){
-            if(gameId == id){
-                ApiGameWrapper gameWrapper = gameWrappers.get(id);
-                if(cheatRequest.equals("1_CHEESE")){
-                    gameWrapper.setNumOfCheese(1);
-                    return;
-                }
-                else if (cheatRequest.equals("SHOW_ALL")){
-                    gameWrapper.setAllVisible();
-                    return;
-                }
-                else{
-                    throw new IOException();
-                }
-            }
+        if(cheatRequest.equals("1_CHEESE")){
+            gameRegistry.change(gameId, gameWrapper -> gameWrapper.setNumOfCheese(1));
+            return;
+        }
+        else if (cheatRequest.equals("SHOW_ALL")){
+            gameRegistry.change(gameId, ApiGameWrapper::setAllVisible);
+            return;
+        }
+        else{
+            throw new IOException();
         }
-        throw new IllegalArgumentException();
     }
 
     //Exception Handlers
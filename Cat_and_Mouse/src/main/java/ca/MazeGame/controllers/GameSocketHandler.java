@@ -0,0 +1,316 @@
+package ca.MazeGame.controllers;
+import ca.MazeGame.api.ApiGameUpdateWrapper;
+import ca.MazeGame.api.ApiGameWrapper;
+import ca.MazeGame.api.RetiredGameException;
+import ca.MazeGame.api.GameUpdateListener;
+import ca.MazeGame.services.GameRegistry;
+import ca.MazeGame.services.GameRegistryListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.annotation.PreDestroy;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push channel for one game at /api/games/{id}/socket. Clients send the same text commands as the
+ * moves endpoint (MOVE_UP, MOVE_CATS, ...) and receive an ApiGameUpdateWrapper holding the board
+ * changes after every change to the game, whoever made it.
+ *
+ * Updates are coalesced per socket: at most one send per socket is queued or in flight, and it
+ * always carries every change since the last one sent. A client that reads slowly therefore gets
+ * fewer, larger updates rather than a growing queue. Sends are asynchronous, so the sender threads
+ * only build and serialize updates and are never held by a slow client. A socket is closed when a
+ * send is still unfinished after the send time limit, or when more than max-pending-updates
+ * changes pile up behind the send in flight. A game's sockets are closed once the game is deleted
+ * or evicted; clients can reconnect to pick up the game again.
+ */
+
+@Component
+public class GameSocketHandler extends TextWebSocketHandler implements GameRegistryListener {
+    private static final Logger log = LoggerFactory.getLogger(GameSocketHandler.class);
+    private static final String GAME_SOCKET = "gameSocket";
+    // Closing a socket sends a close frame, which Tomcat holds back until the send in flight ends.
+    // Past this limit it drops the connection instead, so a stuck client cannot hold up the watchdog.
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    private static final long CLOSE_TIME_LIMIT_MILLIS = 100;
+    private static final CloseStatus GAME_REMOVED = CloseStatus.GOING_AWAY.withReason("game removed");
+    private static final CloseStatus SEND_TOO_SLOW = CloseStatus.SESSION_NOT_RELIABLE.withReason("send too slow");
+    private static final CloseStatus TOO_MANY_PENDING =
+            CloseStatus.SESSION_NOT_RELIABLE.withReason("too many pending updates");
+
+    private final GameRegistry gameRegistry;
+    private final ObjectMapper objectMapper;
+    private final int sendTimeLimitMillis;
+    private final int maxPendingUpdates;
+    private final ExecutorService senders;
+    // Fires send deadlines and closes sockets, so closing never runs on a sender or request thread.
+    private final ScheduledExecutorService watchdog;
+    private final Map<Long, Set<GameSocket>> socketsByGame = new ConcurrentHashMap<>();
+
+    public GameSocketHandler(GameRegistry gameRegistry, ObjectMapper objectMapper,
+                             @Value("${game.socket.send-time-limit-millis:5000}") int sendTimeLimitMillis,
+                             @Value("${game.socket.max-pending-updates:1000}") int maxPendingUpdates,
+                             @Value("${game.socket.sender-threads:4}") int senderThreads) {
+        this.gameRegistry = gameRegistry;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.maxPendingUpdates = maxPendingUpdates;
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "game-socket-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-socket-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        gameRegistry.addListener(this);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        long gameId;
+        ApiGameWrapper game;
+        try {
+            gameId = parseGameId(session.getUri());
+            game = gameRegistry.get(gameId);
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("request ID not found"));
+            return;
+        }
+        Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
+        nativeSession.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, CLOSE_TIME_LIMIT_MILLIS);
+        GameSocket gameSocket = new GameSocket(session, nativeSession.getAsyncRemote(), gameId, game);
+        session.getAttributes().put(GAME_SOCKET, gameSocket);
+        socketsByGame.compute(gameId, (id, sockets) -> {
+            Set<GameSocket> updated = (sockets == null) ? new HashSet<>() : sockets;
+            updated.add(gameSocket);
+            return updated;
+        });
+        game.addUpdateListener(gameSocket);
+        // The game may have gone between the lookup and the socket being added above.
+        if (!gameRegistry.isRegistered(gameId, game)) {
+            gameSocket.close(GAME_REMOVED);
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        GameSocket gameSocket = (GameSocket) session.getAttributes().get(GAME_SOCKET);
+        if (gameSocket == null) {
+            return;
+        }
+        try {
+            if (!gameSocket.game.applyMoveCommand(message.getPayload().trim())) {
+                gameSocket.moveRejected.set(true);
+                gameSocket.scheduleSend();
+            }
+        } catch (RetiredGameException e) {
+            // The game was removed; onGameRemoved closes this socket, and the client reconnects.
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        GameSocket gameSocket = (GameSocket) session.getAttributes().remove(GAME_SOCKET);
+        if (gameSocket != null) {
+            gameSocket.game.removeUpdateListener(gameSocket);
+            gameSocket.cancelSendDeadline();
+            socketsByGame.computeIfPresent(gameSocket.gameId, (id, sockets) -> {
+                sockets.remove(gameSocket);
+                return sockets.isEmpty() ? null : sockets;
+            });
+        }
+    }
+
+    @Override
+    public void onGameAdded(long gameId, ApiGameWrapper game) {
+    }
+
+    // Only the sockets on this copy of the game: a copy loaded again under the same id keeps its own.
+    @Override
+    public void onGameRemoved(long gameId, ApiGameWrapper game) {
+        List<GameSocket> removed = new ArrayList<>();
+        socketsByGame.computeIfPresent(gameId, (id, sockets) -> {
+            sockets.removeIf(gameSocket -> {
+                if (gameSocket.game != game) {
+                    return false;
+                }
+                removed.add(gameSocket);
+                return true;
+            });
+            return sockets.isEmpty() ? null : sockets;
+        });
+        for (GameSocket gameSocket : removed) {
+            gameSocket.close(GAME_REMOVED);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    // The socket URI is /api/games/{id}/socket.
+    private static long parseGameId(URI uri) {
+        String[] parts = (uri == null) ? new String[0] : uri.getPath().split("/");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException();
+        }
+        return Long.parseLong(parts[parts.length - 2]);
+    }
+
+    private class GameSocket implements GameUpdateListener, SendHandler {
+        private final WebSocketSession session;
+        private final RemoteEndpoint.Async remote;
+        private final long gameId;
+        private final ApiGameWrapper game;
+        private final AtomicBoolean sendScheduled = new AtomicBoolean();
+        private final AtomicBoolean changed = new AtomicBoolean();
+        private final AtomicBoolean moveRejected = new AtomicBoolean();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        // Changes since the last update was built; more than maxPendingUpdates means the client is
+        // not keeping up.
+        private final AtomicInteger pendingUpdates = new AtomicInteger();
+        private volatile ScheduledFuture<?> sendDeadline;
+        // Only touched by the one send task running for this socket.
+        private long lastSentVersion;
+
+        private GameSocket(WebSocketSession session, RemoteEndpoint.Async remote, long gameId,
+                           ApiGameWrapper game) {
+            this.session = session;
+            this.remote = remote;
+            this.gameId = gameId;
+            this.game = game;
+            this.lastSentVersion = game.getVersion();
+        }
+
+        @Override
+        public void onGameUpdated(ApiGameWrapper game) {
+            changed.set(true);
+            if (pendingUpdates.incrementAndGet() > maxPendingUpdates) {
+                close(TOO_MANY_PENDING);
+                return;
+            }
+            scheduleSend();
+        }
+
+        private void scheduleSend() {
+            if (sendScheduled.compareAndSet(false, true)) {
+                senders.execute(this::sendPendingUpdates);
+            }
+        }
+
+        // Starts at most one send; the send's completion comes back here for any changes made since.
+        private void sendPendingUpdates() {
+            while (true) {
+                boolean hasChanges = changed.getAndSet(false);
+                boolean rejected = moveRejected.getAndSet(false);
+                if (hasChanges || rejected) {
+                    startSend(rejected);
+                    return;
+                }
+                sendScheduled.set(false);
+                // A change may have arrived after the last check but before the flag was cleared.
+                if (!(changed.get() || moveRejected.get()) || !sendScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        // Leaves sendScheduled set when nothing is sent, so a closed socket never schedules again.
+        private void startSend(boolean rejected) {
+            if (closing.get() || !session.isOpen()) {
+                return;
+            }
+            pendingUpdates.set(0);
+            ApiGameUpdateWrapper update = game.makeGameUpdate(lastSentVersion, rejected);
+            lastSentVersion = update.board.version;
+            String text;
+            try {
+                text = objectMapper.writeValueAsString(update);
+            } catch (JsonProcessingException e) {
+                log.warn("Game socket update not serialized: {}", e.toString());
+                close(CloseStatus.SERVER_ERROR);
+                return;
+            }
+            sendDeadline = watchdog.schedule(() -> closeNow(SEND_TOO_SLOW), sendTimeLimitMillis,
+                    TimeUnit.MILLISECONDS);
+            try {
+                remote.sendText(text, this);
+            } catch (RuntimeException e) {
+                log.debug("Game socket send failed: {}", e.toString());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+
+        // Send completion, on whichever thread the container finished the write.
+        @Override
+        public void onResult(SendResult result) {
+            cancelSendDeadline();
+            if (!result.isOK()) {
+                log.debug("Game socket send failed: {}", String.valueOf(result.getException()));
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            senders.execute(this::sendPendingUpdates);
+        }
+
+        private void cancelSendDeadline() {
+            ScheduledFuture<?> deadline = sendDeadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+
+        private void close(CloseStatus status) {
+            if (closing.compareAndSet(false, true)) {
+                watchdog.execute(() -> closeSession(status));
+            }
+        }
+
+        // Already on the watchdog thread.
+        private void closeNow(CloseStatus status) {
+            if (closing.compareAndSet(false, true)) {
+                closeSession(status);
+            }
+        }
+
+        private void closeSession(CloseStatus status) {
+            try {
+                session.close(status);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Game socket close failed: {}", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ca.MazeGame.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact storage of the wall and visibility state of every cell on the board.
+ * Each state is one bit in a long[] bitset, indexed by y * width + x, so a board costs
+ * two bits per cell and changing a cell never allocates.
+ */
+public class Board {
+    private static final int BITS_PER_WORD = 64;
+
+    private final int width;
+    private final int height;
+    private final long[] walls;
+    private final long[] visible;
+
+    public Board(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int words = wordCount(width * height);
+        walls = new long[words];
+        visible = new long[words];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+
+    public int indexOf(int x, int y) {
+        return y * width + x;
+    }
+
+    public int xOf(int index) {
+        return index % width;
+    }
+    public int yOf(int index) {
+        return index / width;
+    }
+
+    public boolean isWall(int index) {
+        return isSet(walls, index);
+    }
+    public boolean isVisible(int index) {
+        return isSet(visible, index);
+    }
+
+    public boolean isWall(int x, int y) {
+        return isSet(walls, indexOf(x, y));
+    }
+    public boolean isVisible(int x, int y) {
+        return isSet(visible, indexOf(x, y));
+    }
+
+    public void setWall(int x, int y, boolean isWall) {
+        set(walls, indexOf(x, y), isWall);
+    }
+
+    public boolean makeVisible(int x, int y) {
+        return makeVisible(indexOf(x, y));
+    }
+
+    // Returns true if the cell was hidden before this call.
+    public boolean makeVisible(int index) {
+        if (isSet(visible, index)) {
+            return false;
+        }
+        set(visible, index, true);
+        return true;
+    }
+
+    // Write the wall bits of the whole board to a buffer set to little-endian order: cell i is bit (i % 8)
+    // of byte i / 8. Whole words are copied, so this costs one put per 64 cells.
+    public void writeWallBits(ByteBuffer out) {
+        writeBits(walls, out);
+    }
+    public void writeVisibleBits(ByteBuffer out) {
+        writeBits(visible, out);
+    }
+
+    private void writeBits(long[] bits, ByteBuffer out) {
+        int bytes = (width * height + 7) / 8;
+        for (int word = 0; word < bits.length; word++) {
+            int remaining = bytes - word * 8;
+            if (remaining >= 8) {
+                out.putLong(bits[word]);
+            } else {
+                for (int b = 0; b < remaining; b++) {
+                    out.put((byte) (bits[word] >>> (8 * b)));
+                }
+            }
+        }
+    }
+
+    // Read bits written by writeWallBits / writeVisibleBits back into the board.
+    public void readWallBits(ByteBuffer in) {
+        readBits(walls, in);
+    }
+    public void readVisibleBits(ByteBuffer in) {
+        readBits(visible, in);
+    }
+
+    private void readBits(long[] bits, ByteBuffer in) {
+        int bytes = (width * height + 7) / 8;
+        for (int word = 0; word < bits.length; word++) {
+            int remaining = bytes - word * 8;
+            if (remaining >= 8) {
+                bits[word] = in.getLong();
+            } else {
+                long value = 0;
+                for (int b = 0; b < remaining; b++) {
+                    value |= (in.get() & 0xFFL) << (8 * b);
+                }
+                bits[word] = value;
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(walls, 0);
+        Arrays.fill(visible, 0);
+    }
+
+    // Flyweight view of a cell, for callers still using CellState.
+    public CellState getCellState(int x, int y) {
+        return CellState.of(isWall(x, y), isVisible(x, y));
+    }
+
+    public long estimateMemoryBytes() {
+        final int ARRAY_HEADER_BYTES = 16;
+        return 2L * (walls.length * 8L + ARRAY_HEADER_BYTES);
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= (1L << index);
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+}
@@ -1,55 +1,52 @@
 package ca.MazeGame.model;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 /**
  * The position and motion control of a cat.
+ * The position is kept as a packed board index (y * width + x) so a move does not allocate.
+ * Where the cat goes is up to the game's CatStrategy.
  */
 public class Cat {
     private final MazeGame game;
-    private CellLocation location;
+    private int locationIndex;
     private MoveDirection lastMove = MoveDirection.MOVE_NONE;
 
     public Cat(MazeGame game, CellLocation location) {
+        this(game, game.getMaze().getBoard().indexOf(location.getX(), location.getY()));
+    }
+
+    Cat(MazeGame game, int locationIndex) {
         this.game = game;
-        this.location = location;
+        this.locationIndex = locationIndex;
     }
 
-    public CellLocation getLocation() {
-        return location;
+    Cat(MazeGame game, int locationIndex, MoveDirection lastMove) {
+        this(game, locationIndex);
+        this.lastMove = lastMove;
     }
 
-    public void doMove() {
-        List<MoveDirection> possibleMoves = getPossibleMoves();
-        pickOKMove(possibleMoves);
-        // Once moved, the game will ask where the cat is, as needed.
+    MoveDirection getLastMove() {
+        return lastMove;
     }
 
-    private List<MoveDirection> getPossibleMoves() {
-        List<MoveDirection> directions = new ArrayList<>();
-        directions.add(MoveDirection.MOVE_UP);
-        directions.add(MoveDirection.MOVE_DOWN);
-        directions.add(MoveDirection.MOVE_RIGHT);
-        directions.add(MoveDirection.MOVE_LEFT);
-
-        // Have the cat try not to back-track unless needed by making the
-        // backtracking move (opposite last move) be the last one to try.
-        MoveDirection oppositeLastMove = lastMove.getOppositeMove();
-        directions.remove(oppositeLastMove);
-        Collections.shuffle(directions);
-        directions.add(oppositeLastMove);
-        return directions;
+    public CellLocation getLocation() {
+        Board board = game.getMaze().getBoard();
+        return CellLocation.of(board.xOf(locationIndex), board.yOf(locationIndex));
     }
 
-    private void pickOKMove(List<MoveDirection> directions) {
-        for (MoveDirection move : directions) {
-            CellLocation targetLocation = location.getMovedLocation(move);
-            if (game.isCellOpen(targetLocation)) {
-                location = targetLocation;
-                lastMove = move;
-                return;
-            }
+    int getLocationIndex() {
+        return locationIndex;
+    }
+
+    public void doMove() {
+        MoveDirection move = game.getCatStrategy().chooseMove(game, this);
+        if (move == MoveDirection.MOVE_NONE) {
+            return;
         }
+        int targetIndex = game.getMovedIndex(locationIndex, move);
+        if (game.isCellOpen(targetIndex)) {
+            locationIndex = targetIndex;
+            lastMove = move;
+        }
+        // Once moved, the game will ask where the cat is, as needed.
     }
 }
@@ -0,0 +1,19 @@
+package ca.MazeGame.model;
+
+/**
+ * How the cats of a game choose their moves. Each game has its own instance, only used under the
+ * game's lock, so a strategy can keep per-game scratch state such as a distance field.
+ */
+public interface CatStrategy {
+    // Called once per cat tick before any cat moves, to bring shared state up to date.
+    default void prepareMoves(MazeGame game) {
+    }
+
+    // The cat's next move, or MOVE_NONE to stay put. Moves into a wall are ignored.
+    MoveDirection chooseMove(MazeGame game, Cat cat);
+
+    // Heap this strategy may use for a board with the given number of cells.
+    default long estimateMemoryBytes(int cells) {
+        return 0;
+    }
+}
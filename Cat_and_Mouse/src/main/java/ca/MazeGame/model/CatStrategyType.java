@@ -0,0 +1,42 @@
+package ca.MazeGame.model;
+
+/**
+ * The cat strategies a game can be created with, by the name clients use for them.
+ * Saved games store the ordinal, so new types must be added at the end.
+ */
+public enum CatStrategyType {
+    RANDOM_WALK("random"),
+    PURSUIT("pursuit"),
+    CORRIDOR_PURSUIT("corridor");
+
+    private final String name;
+
+    CatStrategyType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CatStrategy create() {
+        switch (this) {
+            case PURSUIT:
+                return new PursuitCatStrategy();
+            case CORRIDOR_PURSUIT:
+                return new CorridorPursuitCatStrategy();
+            default:
+                return new RandomWalkCatStrategy();
+        }
+    }
+
+    // Throws IllegalArgumentException for an unknown name.
+    public static CatStrategyType fromName(String name) {
+        for (CatStrategyType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cat strategy " + name);
+    }
+}
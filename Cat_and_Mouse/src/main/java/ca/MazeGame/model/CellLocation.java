@@ -2,16 +2,36 @@ package ca.MazeGame.model;
 
 /**
  * Represent the coordinates of a game board cell (immutable).
+ * Locations on boards up to CACHE_SIZE x CACHE_SIZE are interned, so of() and
+ * getMovedLocation() do not allocate once a location has been seen.
  */
 public class CellLocation {
-    private int x = 0;
-    private int y = 0;
+    private static final int CACHE_SIZE = 256;
+    private static final CellLocation[] CACHE = new CellLocation[CACHE_SIZE * CACHE_SIZE];
+
+    private final int x;
+    private final int y;
 
     public CellLocation(int x, int y) {
         this.x = x;
         this.y = y;
     }
 
+    public static CellLocation of(int x, int y) {
+        boolean isCached = x >= 0 && x < CACHE_SIZE && y >= 0 && y < CACHE_SIZE;
+        if (!isCached) {
+            return new CellLocation(x, y);
+        }
+        // Racing threads may each create the location once; they are equal and immutable.
+        int cacheIndex = y * CACHE_SIZE + x;
+        CellLocation location = CACHE[cacheIndex];
+        if (location == null) {
+            location = new CellLocation(x, y);
+            CACHE[cacheIndex] = location;
+        }
+        return location;
+    }
+
     public int getX() {
         return x;
     }
@@ -40,6 +60,11 @@ public class CellLocation {
         return sameX && sameY;
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
     public CellLocation getMovedLocation(MoveDirection move) {
         int newX = x;
         int newY = y;
@@ -53,6 +78,6 @@ public class CellLocation {
                 assert false;
         }
 
-        return new CellLocation(newX, newY);
+        return of(newX, newY);
     }
 }
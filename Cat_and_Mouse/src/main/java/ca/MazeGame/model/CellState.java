@@ -2,9 +2,15 @@ package ca.MazeGame.model;
 
 /**
  * Store the state of a game-board cell.
- * An immutable class.
+ * An immutable class. The board itself is stored as bits (see Board); the four
+ * possible states are shared flyweight instances returned by of().
  */
 public class CellState {
+    private static final CellState OPEN_HIDDEN = new CellState(false, false);
+    private static final CellState OPEN_VISIBLE = new CellState(false, true);
+    private static final CellState WALL_HIDDEN = new CellState(true, false);
+    private static final CellState WALL_VISIBLE = new CellState(true, true);
+
     private boolean isVisible = false;
     private boolean isWall = false;
 
@@ -16,6 +22,13 @@ public class CellState {
         this.isVisible = isVisible;
     }
 
+    public static CellState of(boolean isWall, boolean isVisible) {
+        if (isWall) {
+            return isVisible ? WALL_VISIBLE : WALL_HIDDEN;
+        }
+        return isVisible ? OPEN_VISIBLE : OPEN_HIDDEN;
+    }
+
     public boolean isWall() {
         return isWall;
     }
@@ -27,8 +40,8 @@ public class CellState {
         return !isVisible;
     }
 
-    // Create new instance based on current state (Immutable)
+    // Get instance based on current state (Immutable)
     public CellState makeVisible() {
-        return new CellState(isWall, true);
+        return of(isWall, true);
     }
 }
@@ -0,0 +1,85 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+
+/**
+ * Mouse that heads straight for the nearest cheese along a shortest path, ignoring the cats, except
+ * that with the given chance it makes a random move instead; raising that chance makes for a weaker
+ * player. Distances to the cheese come from a breadth-first search over the board, out from every
+ * cheese at once, that is only redone when a cheese is eaten (the only time cheese moves), and the
+ * search reuses its arrays from game to game.
+ */
+public class CheeseSeekingMousePolicy implements MousePolicy {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final MoveDirection[] DIRECTIONS = {
+            MoveDirection.MOVE_UP,
+            MoveDirection.MOVE_RIGHT,
+            MoveDirection.MOVE_DOWN,
+            MoveDirection.MOVE_LEFT
+    };
+
+    private final double randomMoveChance;
+    private int[] distances = new int[0];
+    private int[] queue = new int[0];
+    private int distancesCheeseCollected = -1;
+
+    public CheeseSeekingMousePolicy(double randomMoveChance) {
+        this.randomMoveChance = randomMoveChance;
+    }
+
+    @Override
+    public void startGame(MazeGame game) {
+        int cells = game.getMazeWidth() * game.getMazeHeight();
+        if (distances.length < cells) {
+            distances = new int[cells];
+            queue = new int[cells];
+        }
+        distancesCheeseCollected = -1;
+    }
+
+    @Override
+    public MoveDirection chooseMove(MazeGame game, GameRandom random) {
+        if (randomMoveChance > 0 && (random.nextLong() >>> 11) * 0x1.0p-53 < randomMoveChance) {
+            return RandomMousePolicy.chooseOpenMove(game, random);
+        }
+        if (game.getNumberCheeseCollected() != distancesCheeseCollected) {
+            findDistancesToCheese(game);
+        }
+        int playerIndex = game.getPlayerIndex();
+        MoveDirection best = MoveDirection.MOVE_NONE;
+        int bestDistance = distances[playerIndex];
+        for (MoveDirection move : DIRECTIONS) {
+            int index = game.getMovedIndex(playerIndex, move);
+            if (game.isCellOpen(index) && distances[index] < bestDistance) {
+                best = move;
+                bestDistance = distances[index];
+            }
+        }
+        return (best == MoveDirection.MOVE_NONE) ? RandomMousePolicy.chooseOpenMove(game, random) : best;
+    }
+
+    private void findDistancesToCheese(MazeGame game) {
+        int cells = game.getMazeWidth() * game.getMazeHeight();
+        Arrays.fill(distances, 0, cells, UNREACHED);
+        int head = 0;
+        int tail = 0;
+        for (int cheeseIndex : game.getCheeseIndexes()) {
+            if (cheeseIndex >= 0 && distances[cheeseIndex] == UNREACHED) {
+                distances[cheeseIndex] = 0;
+                queue[tail++] = cheeseIndex;
+            }
+        }
+        while (head < tail) {
+            int index = queue[head++];
+            int nextDistance = distances[index] + 1;
+            for (MoveDirection move : DIRECTIONS) {
+                int neighbour = game.getMovedIndex(index, move);
+                if (game.isCellOpen(neighbour) && distances[neighbour] == UNREACHED) {
+                    distances[neighbour] = nextDistance;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        distancesCheeseCollected = game.getNumberCheeseCollected();
+    }
+}
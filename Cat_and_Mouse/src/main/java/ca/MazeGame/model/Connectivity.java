@@ -0,0 +1,103 @@
+package ca.MazeGame.model;
+
+/**
+ * Immutable connectivity labelling of a Board, built in a single pass with union-find
+ * (path halving) over a flat int[]. Two open cells share a region label iff there is a
+ * path between them. Construction is near-linear in the number of cells, unlike
+ * PathFinder, which rescans the whole board for every vertical join.
+ */
+public class Connectivity {
+    private static final int WALL = -1;
+
+    private final int width;
+    private final int height;
+    // Region label of each cell, indexed by y * width + x; WALL for walls.
+    private final int[] regions;
+    private final int regionCount;
+
+    public Connectivity(final Board board) {
+        width = board.getWidth();
+        height = board.getHeight();
+        regions = new int[width * height];
+
+        unionOpenNeighbours(board);
+        regionCount = flattenRegions();
+    }
+
+    private void unionOpenNeighbours(final Board board) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if (board.isWall(index)) {
+                    regions[index] = WALL;
+                    continue;
+                }
+                regions[index] = index;
+                if (x > 0 && regions[index - 1] != WALL) {
+                    union(index - 1, index);
+                }
+                if (y > 0 && regions[index - width] != WALL) {
+                    union(index - width, index);
+                }
+            }
+        }
+    }
+
+    // Point every open cell directly at its root, and count the roots. A cell's parent always
+    // has a smaller index, so by the time a cell is reached its parent already points at the root.
+    private int flattenRegions() {
+        int count = 0;
+        for (int index = 0; index < regions.length; index++) {
+            if (regions[index] == WALL) {
+                continue;
+            }
+            int root = regions[regions[index]];
+            regions[index] = root;
+            if (root == index) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int find(int index) {
+        while (regions[index] != index) {
+            regions[index] = regions[regions[index]];
+            index = regions[index];
+        }
+        return index;
+    }
+
+    private void union(int index1, int index2) {
+        int root1 = find(index1);
+        int root2 = find(index2);
+        // Keep the smaller index as the root so parents always precede their children.
+        if (root1 < root2) {
+            regions[root2] = root1;
+        } else if (root2 < root1) {
+            regions[root1] = root2;
+        }
+    }
+
+    public boolean hasPath(int index1, int index2) {
+        return regions[index1] != WALL && regions[index1] == regions[index2];
+    }
+
+    public boolean hasPath(CellLocation cell1, CellLocation cell2) {
+        return hasPath(cell1.getY() * width + cell1.getX(), cell2.getY() * width + cell2.getX());
+    }
+
+    // True when every open cell on the board can reach every other open cell.
+    public boolean areAllOpenCellsConnected() {
+        return regionCount <= 1;
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    // Region label of a cell, or -1 for a wall.
+    public int getRegion(int index) {
+        return regions[index];
+    }
+}
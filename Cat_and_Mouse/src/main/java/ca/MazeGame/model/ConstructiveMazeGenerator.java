@@ -0,0 +1,168 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a maze that meets the rules Maze checks for by construction, so Maze never
+ * has to throw a layout away and start again.
+ *
+ * Cells with two odd coordinates are rooms and are always open; cells with two even
+ * coordinates are pillars and are always walls. Every 2x2 square holds exactly one room and
+ * one pillar, so it can be neither all open nor all walls. The cells in between are doors:
+ * a randomized Prim's spanning tree over the rooms opens enough doors to connect every room,
+ * and a few more doors are opened at random to add loops.
+ */
+public class ConstructiveMazeGenerator implements MazeGenerator {
+    private static final double EXTRA_DOOR_PROBABILITY = 0.2;
+
+    private Board board;
+    private int lastX;
+    private int lastY;
+    private int roomsAcross;
+    private int roomsDown;
+
+    // Reused between calls; grown when a larger board is generated.
+    private int[] frontier = new int[0];
+    private boolean[] inTree = new boolean[0];
+    private boolean[] everQueued = new boolean[0];
+
+    @Override
+    public void generate(Board board, SplittableRandom random) {
+        this.board = board;
+        this.lastX = board.getWidth() - 2;
+        this.lastY = board.getHeight() - 2;
+        this.roomsAcross = (lastX + 1) / 2;
+        this.roomsDown = (lastY + 1) / 2;
+
+        board.clear();
+        fillWithWallsAndRooms();
+        connectRoomsWithSpanningTree(random);
+        openExtraDoors(random);
+        clearMazeCorners();
+    }
+
+    private void fillWithWallsAndRooms() {
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                boolean isEdge = x == 0 || y == 0 || x > lastX || y > lastY;
+                board.setWall(x, y, isEdge || !isRoom(x, y));
+                if (isEdge) {
+                    // Walls on edge will be visible.
+                    board.makeVisible(x, y);
+                }
+            }
+        }
+    }
+
+    // Randomized Prim's algorithm over the rooms: each step picks a random frontier room
+    // (swap-remove from an int array) and opens the door to a random neighbour already in the tree.
+    private void connectRoomsWithSpanningTree(SplittableRandom random) {
+        int roomCount = roomsAcross * roomsDown;
+        if (frontier.length < roomCount) {
+            frontier = new int[roomCount];
+            inTree = new boolean[roomCount];
+            everQueued = new boolean[roomCount];
+        } else {
+            Arrays.fill(inTree, 0, roomCount, false);
+            Arrays.fill(everQueued, 0, roomCount, false);
+        }
+
+        int start = (roomsDown / 2) * roomsAcross + roomsAcross / 2;
+        inTree[start] = true;
+        everQueued[start] = true;
+        int frontierSize = queueNeighbours(start, 0);
+
+        while (frontierSize > 0) {
+            int pick = random.nextInt(frontierSize);
+            int room = frontier[pick];
+            frontier[pick] = frontier[--frontierSize];
+
+            openDoorToTree(room, random);
+            inTree[room] = true;
+            frontierSize = queueNeighbours(room, frontierSize);
+        }
+    }
+
+    private int queueNeighbours(int room, int frontierSize) {
+        int column = room % roomsAcross;
+        int row = room / roomsAcross;
+        for (int direction = 0; direction < 4; direction++) {
+            int neighbour = neighbourRoom(column, row, direction);
+            if (neighbour >= 0 && !everQueued[neighbour]) {
+                everQueued[neighbour] = true;
+                frontier[frontierSize++] = neighbour;
+            }
+        }
+        return frontierSize;
+    }
+
+    private void openDoorToTree(int room, SplittableRandom random) {
+        int column = room % roomsAcross;
+        int row = room / roomsAcross;
+        int firstDirection = random.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            int direction = (firstDirection + i) % 4;
+            int neighbour = neighbourRoom(column, row, direction);
+            if (neighbour >= 0 && inTree[neighbour]) {
+                // The door sits halfway between the two rooms.
+                int x = column + (neighbour % roomsAcross) + 1;
+                int y = row + (neighbour / roomsAcross) + 1;
+                board.setWall(x, y, false);
+                return;
+            }
+        }
+    }
+
+    // Room next to (column, row) in the given direction (0 up, 1 right, 2 down, 3 left), or -1.
+    private int neighbourRoom(int column, int row, int direction) {
+        switch (direction) {
+            case 0:  row--; break;
+            case 1:  column++; break;
+            case 2:  row++; break;
+            default: column--; break;
+        }
+        boolean onBoard = column >= 0 && column < roomsAcross && row >= 0 && row < roomsDown;
+        return onBoard ? row * roomsAcross + column : -1;
+    }
+
+    // Doors never complete a 2x2 square, so any of them can be opened to make loops.
+    // On even sized boards this also opens some dead ends into the last column or row.
+    private void openExtraDoors(SplittableRandom random) {
+        for (int y = 1; y <= lastY; y++) {
+            for (int x = 1; x <= lastX; x++) {
+                if (isDoor(x, y) && random.nextDouble() < EXTRA_DOOR_PROBABILITY) {
+                    board.setWall(x, y, false);
+                }
+            }
+        }
+    }
+
+    private void clearMazeCorners() {
+        // Ensure starting cells for player and cats are free of walls. Only the bottom right
+        // corner can land on a pillar (when both dimensions are even); it is then joined through
+        // one of its two neighbouring doors, and the other door stays a wall so no open square
+        // forms. The door on the left is used unless the door above is the top right corner.
+        board.setWall(1, 1, false);
+        board.setWall(lastX, 1, false);
+        board.setWall(1, lastY, false);
+        board.setWall(lastX, lastY, false);
+        if (isPillar(lastX, lastY)) {
+            boolean joinAbove = lastY - 1 == 1;
+            board.setWall(lastX - 1, lastY, joinAbove);
+            board.setWall(lastX, lastY - 1, !joinAbove);
+        }
+    }
+
+    private static boolean isRoom(int x, int y) {
+        return x % 2 == 1 && y % 2 == 1;
+    }
+
+    private static boolean isPillar(int x, int y) {
+        return x % 2 == 0 && y % 2 == 0;
+    }
+
+    private static boolean isDoor(int x, int y) {
+        return x % 2 != y % 2;
+    }
+}
@@ -0,0 +1,521 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+
+/**
+ * Compressed form of a maze for shortest path queries. Open cells that do not have exactly two
+ * open neighbours (junctions and dead ends) are the nodes; the runs of two-neighbour cells between
+ * them are corridors, stored as edges weighted by their length. Most open cells are corridor
+ * cells, so the graph is several times smaller than the board. Adjacency is kept in flat arrays
+ * (each node's edges are edgeStart[node] .. edgeStart[node + 1] - 1), and corridor cells are not
+ * stored at all: a query starting or ending inside a corridor walks it to the nodes at each end.
+ *
+ * Distances between nodes come from Dijkstra's algorithm, stopped as soon as the nodes a query
+ * needs are settled. On small mazes every pair is worked out up front; on larger ones node pair
+ * distances go into a DistanceCache, so queries from cells along the same corridors (a mouse
+ * heading for the cheese, cats closing in) mostly skip the search.
+ *
+ * Built once per maze, the first time it is asked for. Not thread safe: like the rest of a game,
+ * it is only used under the game's lock.
+ */
+public class CorridorGraph {
+    public static final int NO_PATH = -1;
+    // Node counts up to this get a full all pairs table (about 128 KB at most).
+    private static final int MAX_NODES_FOR_ALL_PAIRS = 256;
+    private static final int MAX_CACHED_PAIRS = 1 << 16;
+    // A search caches every node it settles, so this many times the node count holds a few
+    // complete searches.
+    private static final int CACHED_PAIRS_PER_NODE = 4;
+    // Typical share of the cells of a generated maze that become nodes, for estimates.
+    private static final int CELLS_PER_NODE = 6;
+    private static final int BYTES_PER_NODE = 4 + 4 + 8 + 2 * 2 * 9;
+    private static final int NOT_NODE = -1;
+    private static final long NO_ROUTE = -1;
+    private static final int MAX_CANDIDATES = 4;
+    private static final MoveDirection[] DIRECTIONS = {
+            MoveDirection.MOVE_UP,
+            MoveDirection.MOVE_RIGHT,
+            MoveDirection.MOVE_DOWN,
+            MoveDirection.MOVE_LEFT
+    };
+    private static final MoveDirection[] MOVES = MoveDirection.values();
+
+    private final Board board;
+    private final int width;
+    // Cell of each node. Junctions come first, in board order, so they can be binary searched;
+    // any loop of corridor with no junction on it gets one of its cells made a node, after them.
+    private int[] nodeCells;
+    private int junctionCount;
+    private int nodeCount;
+    private int[] edgeStart;
+    private int[] edgeTarget;
+    private int[] edgeWeight;
+    private byte[] edgeMove;
+    private int edgeCount;
+
+    private final int[] allPairs;
+    private final DistanceCache cache;
+
+    // Scratch space for searches.
+    private final int[] distances;
+    private final int[] stamps;
+    private int stamp;
+    private long[] heap = new long[64];
+    private int walkEnd;
+    private int walkPrevious;
+    private int walkSteps;
+    private final int[] candidateNodes = new int[MAX_CANDIDATES];
+    private final int[] candidateDistances = new int[MAX_CANDIDATES];
+    private final MoveDirection[] candidateMoves = new MoveDirection[MAX_CANDIDATES];
+    private int candidateCount;
+    private final int[] seedNodes = new int[2];
+    private final int[] seedDistances = new int[2];
+    private final MoveDirection[] seedMoves = new MoveDirection[2];
+    private int seedCount;
+    private final int[] searchTargets = new int[MAX_CANDIDATES];
+
+    public CorridorGraph(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        findNodes();
+        findEdges();
+
+        distances = new int[nodeCount];
+        stamps = new int[nodeCount];
+        if (nodeCount <= MAX_NODES_FOR_ALL_PAIRS) {
+            allPairs = new int[nodeCount * (nodeCount + 1) / 2];
+            Arrays.fill(allPairs, NO_PATH);
+            cache = null;
+            for (int node = 0; node < nodeCount; node++) {
+                search(node, 0);
+            }
+        } else {
+            allPairs = null;
+            cache = new DistanceCache(Math.min(MAX_CACHED_PAIRS, CACHED_PAIRS_PER_NODE * nodeCount));
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+    // Each corridor counts once, although it is stored from both ends.
+    public int getEdgeCount() {
+        return edgeCount / 2;
+    }
+    public long getCacheHits() {
+        return cache == null ? 0 : cache.getHits();
+    }
+    public long getCacheMisses() {
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    // Rough size of the graph of a generated maze with this many cells, before it is built.
+    public static long estimateMemoryBytes(int cells) {
+        long nodes = cells / CELLS_PER_NODE;
+        if (nodes <= MAX_NODES_FOR_ALL_PAIRS) {
+            return nodes * BYTES_PER_NODE + 4 * nodes * (nodes + 1) / 2;
+        }
+        return nodes * BYTES_PER_NODE + DistanceCache.estimateMemoryBytes(
+                (int) Math.min(MAX_CACHED_PAIRS, CACHED_PAIRS_PER_NODE * nodes));
+    }
+
+    public long estimateMemoryBytes() {
+        long bytes = 4L * nodeCells.length + 4L * edgeStart.length
+                + 9L * edgeTarget.length + 8L * nodeCount + 8L * heap.length;
+        if (allPairs != null) {
+            bytes += 4L * allPairs.length;
+        } else {
+            bytes += cache.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
+    // Number of moves on a shortest path between two cells inside the outer wall, or NO_PATH if
+    // either is a wall or there is no path.
+    public int findDistance(int fromIndex, int toIndex) {
+        long route = findRoute(fromIndex, toIndex);
+        return route == NO_ROUTE ? NO_PATH : (int) (route >>> 3);
+    }
+
+    // First move of a shortest path between two cells, or MOVE_NONE if they are the same cell or
+    // there is no path. Ties go to the first of up, right, down, left.
+    public MoveDirection findFirstMove(int fromIndex, int toIndex) {
+        long route = findRoute(fromIndex, toIndex);
+        return route == NO_ROUTE ? MoveDirection.MOVE_NONE : MOVES[(int) (route & 7)];
+    }
+
+    private void findNodes() {
+        int height = board.getHeight();
+        nodeCells = new int[64];
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int cell = board.indexOf(x, y);
+                if (!board.isWall(cell) && countOpenNeighbours(cell) != 2) {
+                    addNode(cell);
+                }
+            }
+        }
+        junctionCount = nodeCount;
+    }
+
+    private void addNode(int cell) {
+        if (nodeCount == nodeCells.length) {
+            nodeCells = Arrays.copyOf(nodeCells, nodeCount * 2);
+        }
+        nodeCells[nodeCount++] = cell;
+    }
+
+    private void findEdges() {
+        long[] visited = new long[(board.getWidth() * board.getHeight() + 63) / 64];
+        edgeStart = new int[nodeCount + 1];
+        edgeTarget = new int[nodeCount * 2 + 4];
+        edgeWeight = new int[edgeTarget.length];
+        edgeMove = new byte[edgeTarget.length];
+        for (int node = 0; node < junctionCount; node++) {
+            addEdgesOf(node, visited);
+        }
+        // Corridor cells no junction reached lie on loops with no junction at all.
+        int height = board.getHeight();
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int cell = board.indexOf(x, y);
+                if (!board.isWall(cell) && !isNode(cell) && (visited[cell >>> 6] & (1L << cell)) == 0) {
+                    addNode(cell);
+                    edgeStart = Arrays.copyOf(edgeStart, nodeCount + 1);
+                    addEdgesOf(nodeCount - 1, visited);
+                }
+            }
+        }
+        edgeStart[nodeCount] = edgeCount;
+    }
+
+    private void addEdgesOf(int node, long[] visited) {
+        edgeStart[node] = edgeCount;
+        int cell = nodeCells[node];
+        for (MoveDirection move : DIRECTIONS) {
+            int next = getMovedIndex(cell, move);
+            if (board.isWall(next)) {
+                continue;
+            }
+            walk(cell, next, -1, visited);
+            // A corridor that comes back to where it started is never on a shortest path.
+            if (walkEnd == cell) {
+                continue;
+            }
+            if (edgeCount == edgeTarget.length) {
+                int length = edgeCount * 2;
+                edgeTarget = Arrays.copyOf(edgeTarget, length);
+                edgeWeight = Arrays.copyOf(edgeWeight, length);
+                edgeMove = Arrays.copyOf(edgeMove, length);
+            }
+            edgeTarget[edgeCount] = findNode(walkEnd);
+            edgeWeight[edgeCount] = walkSteps;
+            edgeMove[edgeCount] = (byte) move.ordinal();
+            edgeCount++;
+        }
+    }
+
+    // Follow a corridor, starting with the step from one cell to the next, until it reaches a node
+    // or the stop cell. Leaves the cell reached in walkEnd, the cell before it in walkPrevious and
+    // the number of steps taken in walkSteps.
+    private void walk(int from, int next, int stopCell, long[] visited) {
+        int previous = from;
+        int cell = next;
+        int steps = 1;
+        while (cell != stopCell && !isNode(cell)) {
+            if (visited != null) {
+                visited[cell >>> 6] |= 1L << cell;
+            }
+            int following = findOtherOpenNeighbour(cell, previous);
+            previous = cell;
+            cell = following;
+            steps++;
+        }
+        walkEnd = cell;
+        walkPrevious = previous;
+        walkSteps = steps;
+    }
+
+    private boolean isNode(int cell) {
+        if (countOpenNeighbours(cell) != 2) {
+            return true;
+        }
+        for (int node = junctionCount; node < nodeCount; node++) {
+            if (nodeCells[node] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int findNode(int cell) {
+        int node = Arrays.binarySearch(nodeCells, 0, junctionCount, cell);
+        if (node >= 0) {
+            return node;
+        }
+        for (node = junctionCount; node < nodeCount; node++) {
+            if (nodeCells[node] == cell) {
+                return node;
+            }
+        }
+        return NOT_NODE;
+    }
+
+    private int countOpenNeighbours(int cell) {
+        int count = 0;
+        for (MoveDirection move : DIRECTIONS) {
+            if (!board.isWall(getMovedIndex(cell, move))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int findOtherOpenNeighbour(int cell, int previous) {
+        for (MoveDirection move : DIRECTIONS) {
+            int neighbour = getMovedIndex(cell, move);
+            if (neighbour != previous && !board.isWall(neighbour)) {
+                return neighbour;
+            }
+        }
+        return previous;
+    }
+
+    private int getMovedIndex(int index, MoveDirection move) {
+        return index + move.getDeltaX() + move.getDeltaY() * width;
+    }
+
+    private MoveDirection findMoveBetween(int from, int to) {
+        for (MoveDirection move : DIRECTIONS) {
+            if (getMovedIndex(from, move) == to) {
+                return move;
+            }
+        }
+        return MoveDirection.MOVE_NONE;
+    }
+
+    // Shortest route as (distance << 3) | first move ordinal, or NO_ROUTE.
+    private long findRoute(int fromIndex, int toIndex) {
+        if (board.isWall(fromIndex) || board.isWall(toIndex)) {
+            return NO_ROUTE;
+        }
+        if (fromIndex == toIndex) {
+            return MoveDirection.MOVE_NONE.ordinal();
+        }
+        findSeeds(toIndex);
+        long best = findCandidates(fromIndex, toIndex);
+
+        for (int s = 0; s < seedCount; s++) {
+            int searchCount = 0;
+            for (int c = 0; c < candidateCount; c++) {
+                int node = candidateNodes[c];
+                if (findPairDistance(node, seedNodes[s]) == DistanceCache.NOT_CACHED
+                        && !isSearchTarget(node, searchCount)) {
+                    searchTargets[searchCount++] = node;
+                }
+            }
+            if (searchCount > 0) {
+                search(seedNodes[s], searchCount);
+            }
+            for (int c = 0; c < candidateCount; c++) {
+                int between = findSearchedDistance(candidateNodes[c], seedNodes[s]);
+                if (between == NO_PATH) {
+                    continue;
+                }
+                long distance = (long) candidateDistances[c] + between + seedDistances[s];
+                if (best == NO_ROUTE || distance < (best >>> 3)) {
+                    best = (distance << 3) | candidateMoves[c].ordinal();
+                }
+            }
+        }
+        return best;
+    }
+
+    // The nodes a route to the target cell can finish from, with the distance on to the target.
+    private void findSeeds(int toIndex) {
+        seedCount = 0;
+        if (isNode(toIndex)) {
+            addSeed(findNode(toIndex), 0, MoveDirection.MOVE_NONE);
+            return;
+        }
+        for (MoveDirection move : DIRECTIONS) {
+            int next = getMovedIndex(toIndex, move);
+            if (!board.isWall(next)) {
+                walk(toIndex, next, -1, null);
+                addSeed(findNode(walkEnd), walkSteps, findMoveBetween(walkEnd, walkPrevious));
+            }
+        }
+    }
+
+    private void addSeed(int node, int distance, MoveDirection moveIntoCorridor) {
+        seedNodes[seedCount] = node;
+        seedDistances[seedCount] = distance;
+        seedMoves[seedCount] = moveIntoCorridor;
+        seedCount++;
+    }
+
+    // The nodes a route from the start cell can head for first, with the distance to each and the
+    // first move. Returns the route that never passes a node, if the target is that close.
+    private long findCandidates(int fromIndex, int toIndex) {
+        candidateCount = 0;
+        long direct = NO_ROUTE;
+        if (isNode(fromIndex)) {
+            int node = findNode(fromIndex);
+            for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+                addCandidate(edgeTarget[edge], edgeWeight[edge], MOVES[edgeMove[edge]]);
+            }
+            for (int s = 0; s < seedCount; s++) {
+                if (seedNodes[s] == node && seedDistances[s] > 0) {
+                    direct = shorterRoute(direct, seedDistances[s], seedMoves[s]);
+                }
+            }
+            return direct;
+        }
+        for (MoveDirection move : DIRECTIONS) {
+            int next = getMovedIndex(fromIndex, move);
+            if (board.isWall(next)) {
+                continue;
+            }
+            walk(fromIndex, next, toIndex, null);
+            if (walkEnd == toIndex) {
+                direct = shorterRoute(direct, walkSteps, move);
+            } else {
+                addCandidate(findNode(walkEnd), walkSteps, move);
+            }
+        }
+        return direct;
+    }
+
+    private void addCandidate(int node, int distance, MoveDirection move) {
+        candidateNodes[candidateCount] = node;
+        candidateDistances[candidateCount] = distance;
+        candidateMoves[candidateCount] = move;
+        candidateCount++;
+    }
+
+    private static long shorterRoute(long route, int distance, MoveDirection move) {
+        if (route == NO_ROUTE || distance < (route >>> 3)) {
+            return ((long) distance << 3) | move.ordinal();
+        }
+        return route;
+    }
+
+    private int findPairDistance(int node1, int node2) {
+        if (node1 == node2) {
+            return 0;
+        }
+        if (allPairs != null) {
+            return allPairs[pairIndex(node1, node2)];
+        }
+        return cache.find(node1, node2);
+    }
+
+    // After a search from node2: the distance to node1, or NO_PATH if it was not reached.
+    private int findSearchedDistance(int node1, int node2) {
+        int distance = findPairDistance(node1, node2);
+        if (distance != DistanceCache.NOT_CACHED) {
+            return distance;
+        }
+        return stamps[node1] == stamp ? distances[node1] : NO_PATH;
+    }
+
+    private static int pairIndex(int node1, int node2) {
+        int low = Math.min(node1, node2);
+        int high = Math.max(node1, node2);
+        return high * (high + 1) / 2 + low;
+    }
+
+    // Dijkstra's algorithm from one node, recording every node it settles, until the first
+    // targetCount entries of searchTargets are all settled (or everything is, for zero targets).
+    private void search(int source, int targetCount) {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        int remaining = targetCount;
+        int heapSize = 0;
+        distances[source] = 0;
+        stamps[source] = stamp;
+        heap[heapSize++] = source;
+        while (heapSize > 0) {
+            long top = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heapSize);
+            int node = (int) top;
+            int distance = (int) (top >>> 32);
+            if (distance != distances[node]) {
+                continue;
+            }
+            recordDistance(source, node, distance);
+            if (targetCount > 0 && isSearchTarget(node, targetCount) && --remaining == 0) {
+                return;
+            }
+            for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+                int target = edgeTarget[edge];
+                int newDistance = distance + edgeWeight[edge];
+                if (stamps[target] != stamp || newDistance < distances[target]) {
+                    stamps[target] = stamp;
+                    distances[target] = newDistance;
+                    if (heapSize == heap.length) {
+                        heap = Arrays.copyOf(heap, heapSize * 2);
+                    }
+                    heap[heapSize] = ((long) newDistance << 32) | target;
+                    siftUp(heapSize++);
+                }
+            }
+        }
+    }
+
+    private void recordDistance(int source, int node, int distance) {
+        if (allPairs != null) {
+            allPairs[pairIndex(source, node)] = distance;
+        } else if (node != source) {
+            cache.store(source, node, distance);
+        }
+    }
+
+    private boolean isSearchTarget(int node, int targetCount) {
+        for (int i = 0; i < targetCount; i++) {
+            if (searchTargets[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void siftUp(int position) {
+        long value = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = value;
+    }
+
+    private void siftDown(int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        long value = heap[0];
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = value;
+    }
+}
@@ -0,0 +1,20 @@
+package ca.MazeGame.model;
+
+/**
+ * Cats chase the mouse along shortest paths, each asking the maze's CorridorGraph for its first
+ * step. Unlike PursuitCatStrategy there is no field to rebuild when the mouse moves, and node
+ * distances stay cached while the mouse and cats move along corridors, so each cat costs a couple
+ * of microseconds a tick whatever the board size. That makes it the cheaper chase for a few cats
+ * on a large board; with many cats the shared field of PursuitCatStrategy wins.
+ */
+public class CorridorPursuitCatStrategy implements CatStrategy {
+    @Override
+    public MoveDirection chooseMove(MazeGame game, Cat cat) {
+        return game.getMaze().getCorridorGraph().findFirstMove(cat.getLocationIndex(), game.getPlayerIndex());
+    }
+
+    @Override
+    public long estimateMemoryBytes(int cells) {
+        return CorridorGraph.estimateMemoryBytes(cells);
+    }
+}
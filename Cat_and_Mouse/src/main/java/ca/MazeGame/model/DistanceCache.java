@@ -0,0 +1,154 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size least recently used map from a pair of graph nodes to the distance between them,
+ * for CorridorGraph. Pairs are unordered. Entries live in parallel primitive arrays: a hash table
+ * of bucket chains to find them and a doubly linked list from most to least recently used to
+ * evict them, so lookups and inserts do not allocate. Not thread safe.
+ */
+final class DistanceCache {
+    static final int NOT_CACHED = -1;
+    private static final int NONE = -1;
+    private static final int BYTES_PER_ENTRY = 8 + 4 * 5;
+
+    private final long[] keys;
+    private final int[] distances;
+    private final int[] buckets;
+    private final int[] nextInBucket;
+    // Recency list: head is the most recently used entry, tail the next to be evicted.
+    private final int[] newer;
+    private final int[] older;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private long hits;
+    private long misses;
+
+    // The capacity is rounded up to a power of two.
+    DistanceCache(int capacity) {
+        int slots = roundUpCapacity(capacity);
+        keys = new long[slots];
+        distances = new int[slots];
+        buckets = new int[slots];
+        nextInBucket = new int[slots];
+        newer = new int[slots];
+        older = new int[slots];
+        Arrays.fill(buckets, NONE);
+    }
+
+    long getHits() {
+        return hits;
+    }
+    long getMisses() {
+        return misses;
+    }
+
+    private static int roundUpCapacity(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity - 1)) * 2;
+    }
+
+    long estimateMemoryBytes() {
+        return (long) keys.length * BYTES_PER_ENTRY;
+    }
+
+    static long estimateMemoryBytes(int capacity) {
+        return (long) roundUpCapacity(capacity) * BYTES_PER_ENTRY;
+    }
+
+    // The cached distance between two nodes, or NOT_CACHED.
+    int find(int node1, int node2) {
+        long key = keyOf(node1, node2);
+        for (int entry = buckets[bucketOf(key)]; entry != NONE; entry = nextInBucket[entry]) {
+            if (keys[entry] == key) {
+                hits++;
+                moveToHead(entry);
+                return distances[entry];
+            }
+        }
+        misses++;
+        return NOT_CACHED;
+    }
+
+    void store(int node1, int node2, int distance) {
+        long key = keyOf(node1, node2);
+        int bucket = bucketOf(key);
+        for (int entry = buckets[bucket]; entry != NONE; entry = nextInBucket[entry]) {
+            if (keys[entry] == key) {
+                distances[entry] = distance;
+                moveToHead(entry);
+                return;
+            }
+        }
+        int entry;
+        if (size < keys.length) {
+            entry = size++;
+        } else {
+            entry = tail;
+            unlink(entry);
+            removeFromBucket(entry);
+        }
+        keys[entry] = key;
+        distances[entry] = distance;
+        nextInBucket[entry] = buckets[bucket];
+        buckets[bucket] = entry;
+        linkAtHead(entry);
+    }
+
+    private static long keyOf(int node1, int node2) {
+        int low = Math.min(node1, node2);
+        int high = Math.max(node1, node2);
+        return ((long) high << 32) | low;
+    }
+
+    private int bucketOf(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 40) & (buckets.length - 1);
+    }
+
+    private void removeFromBucket(int entry) {
+        int bucket = bucketOf(keys[entry]);
+        if (buckets[bucket] == entry) {
+            buckets[bucket] = nextInBucket[entry];
+            return;
+        }
+        int previous = buckets[bucket];
+        while (nextInBucket[previous] != entry) {
+            previous = nextInBucket[previous];
+        }
+        nextInBucket[previous] = nextInBucket[entry];
+    }
+
+    private void moveToHead(int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkAtHead(entry);
+        }
+    }
+
+    private void linkAtHead(int entry) {
+        newer[entry] = NONE;
+        older[entry] = head;
+        if (head != NONE) {
+            newer[head] = entry;
+        }
+        head = entry;
+        if (tail == NONE) {
+            tail = entry;
+        }
+    }
+
+    private void unlink(int entry) {
+        if (newer[entry] != NONE) {
+            older[newer[entry]] = older[entry];
+        } else {
+            head = older[entry];
+        }
+        if (older[entry] != NONE) {
+            newer[older[entry]] = newer[entry];
+        } else {
+            tail = newer[entry];
+        }
+    }
+}
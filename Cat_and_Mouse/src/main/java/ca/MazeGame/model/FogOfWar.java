@@ -0,0 +1,126 @@
+package ca.MazeGame.model;
+
+/**
+ * Reveals what the mouse sees as it moves, as set by the game's SightRange, in the board's visible
+ * bits. Each call reports the cells it newly revealed (getRevealedCell) so the game can log them
+ * for incremental board updates; cells that were already visible are not reported again.
+ *
+ * Cost per move is proportional to the radius, never its square or the board: after a step only
+ * the edge of the square that comes into view is looked at, since the rest was revealed from the
+ * cell before; with line of sight the four corridors are walked again, up to radius cells each.
+ * Showing the whole board is not done here: the game keeps a flag for that.
+ * Not thread safe (it keeps scratch space); used under the game's lock.
+ */
+final class FogOfWar {
+    private static final MoveDirection[] DIRECTIONS = {
+            MoveDirection.MOVE_UP, MoveDirection.MOVE_RIGHT, MoveDirection.MOVE_DOWN, MoveDirection.MOVE_LEFT};
+
+    private final Board board;
+    private final int radius;
+    private final boolean isLineOfSight;
+    // Cells revealed by the last call; they all lie in the square around the mouse.
+    private final int[] revealed;
+    private int revealedCount;
+
+    FogOfWar(Board board, SightRange sight) {
+        this.board = board;
+        this.radius = sight.getRadius();
+        this.isLineOfSight = sight.hasLineOfSight();
+        int side = 2 * radius + 1;
+        this.revealed = new int[side * side];
+    }
+
+    long estimateMemoryBytes() {
+        return 4L * revealed.length;
+    }
+
+    int getRevealedCell(int i) {
+        return revealed[i];
+    }
+
+    // Reveal everything the mouse sees from the cell, as when it is first put there; returns how
+    // many cells were newly revealed.
+    int revealFrom(int index) {
+        revealedCount = 0;
+        int x = board.xOf(index);
+        int y = board.yOf(index);
+        if (isLineOfSight) {
+            revealArea(x - 1, y - 1, x + 1, y + 1);
+            revealCorridors(x, y);
+        } else {
+            revealArea(x - radius, y - radius, x + radius, y + radius);
+        }
+        return revealedCount;
+    }
+
+    // Reveal what comes into view when the mouse steps onto the cell by the given move, from a cell
+    // everything was already revealed around; returns how many cells were newly revealed.
+    int revealAfterMove(int index, MoveDirection move) {
+        if (isLineOfSight) {
+            return revealFrom(index);
+        }
+        revealedCount = 0;
+        int x = board.xOf(index);
+        int y = board.yOf(index);
+        if (move.getDeltaX() != 0) {
+            int edgeX = x + move.getDeltaX() * radius;
+            revealArea(edgeX, y - radius, edgeX, y + radius);
+        } else if (move.getDeltaY() != 0) {
+            int edgeY = y + move.getDeltaY() * radius;
+            revealArea(x - radius, edgeY, x + radius, edgeY);
+        }
+        return revealedCount;
+    }
+
+    // Every cell from (left, top) to (right, bottom) inclusive that is on the board.
+    private void revealArea(int left, int top, int right, int bottom) {
+        int fromX = Math.max(left, 0);
+        int toX = Math.min(right, board.getWidth() - 1);
+        int fromY = Math.max(top, 0);
+        int toY = Math.min(bottom, board.getHeight() - 1);
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                reveal(board.indexOf(x, y));
+            }
+        }
+    }
+
+    // Straight down each corridor to the wall that ends it or radius cells away, with the cells on
+    // either side of the open ones (the corridor's walls, or the openings in them).
+    private void revealCorridors(int x, int y) {
+        for (MoveDirection direction : DIRECTIONS) {
+            int dx = direction.getDeltaX();
+            int dy = direction.getDeltaY();
+            for (int step = 1; step <= radius; step++) {
+                int cellX = x + dx * step;
+                int cellY = y + dy * step;
+                if (!isOnBoard(cellX, cellY)) {
+                    break;
+                }
+                int index = board.indexOf(cellX, cellY);
+                reveal(index);
+                if (board.isWall(index)) {
+                    break;
+                }
+                revealIfOnBoard(cellX + dy, cellY + dx);
+                revealIfOnBoard(cellX - dy, cellY - dx);
+            }
+        }
+    }
+
+    private void revealIfOnBoard(int x, int y) {
+        if (isOnBoard(x, y)) {
+            reveal(board.indexOf(x, y));
+        }
+    }
+
+    private boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < board.getWidth() && y >= 0 && y < board.getHeight();
+    }
+
+    private void reveal(int index) {
+        if (board.makeVisible(index)) {
+            revealed[revealedCount++] = index;
+        }
+    }
+}
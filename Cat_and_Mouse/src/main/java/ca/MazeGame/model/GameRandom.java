@@ -0,0 +1,39 @@
+package ca.MazeGame.model;
+
+/**
+ * Random source for one game: the same SplitMix64 generator that SplittableRandom uses, but with
+ * its whole state in one long that can be saved and restored, so a restored game goes on drawing
+ * exactly the numbers the saved game would have. Not thread safe; each game uses its own under
+ * the game's lock, so there is no shared random source for threads to contend on.
+ */
+public final class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    // A generator with a given state is the same as one created from that seed.
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Uniform in [0, bound) by multiply-and-shift; the bias is under bound / 2^32, which is
+    // far below anything a game can notice.
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,48 @@
+package ca.MazeGame.model;
+
+/**
+ * How a game started plus every input it has accepted since: enough to play the game again,
+ * or to fast-forward a new copy to any point in it. Taken from a game with
+ * MazeGame.makeRecording(), which copies the move log, so a recording can be replayed without
+ * holding the game's lock.
+ */
+public final class GameRecording {
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final int numCats;
+    private final int numCheeseToCollect;
+    private final CatStrategyType catStrategyType;
+    private final int numCheeseOnBoard;
+    private final SightRange sightRange;
+    private final MoveLog moveLog;
+
+    GameRecording(int width, int height, long seed, int numCats, int numCheeseToCollect,
+                  CatStrategyType catStrategyType, int numCheeseOnBoard, SightRange sightRange, MoveLog moveLog) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.numCats = numCats;
+        this.numCheeseToCollect = numCheeseToCollect;
+        this.catStrategyType = catStrategyType;
+        this.numCheeseOnBoard = numCheeseOnBoard;
+        this.sightRange = sightRange;
+        this.moveLog = moveLog;
+    }
+
+    public long getInputCount() {
+        return moveLog.getInputCount();
+    }
+
+    // A new game played through the first maxInputs inputs (all of them if there are fewer).
+    public MazeGame replay(long maxInputs) {
+        MazeGame game = new MazeGame(new Maze(width, height, seed), numCats, numCheeseToCollect,
+                catStrategyType, numCheeseOnBoard, sightRange);
+        moveLog.replayInto(game, maxInputs);
+        return game;
+    }
+
+    public MazeGame replay() {
+        return replay(Long.MAX_VALUE);
+    }
+}
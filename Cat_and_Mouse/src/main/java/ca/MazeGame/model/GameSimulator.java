@@ -0,0 +1,130 @@
+package ca.MazeGame.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays many games with no server, for tuning difficulty: every game is played by a MousePolicy,
+ * with the cats moving after each mouse move as they do when a client sends MOVE_CATS, until the
+ * game is won, lost or reaches the step limit.
+ *
+ * Games are split into ranges across a fork-join pool, and each task plays its range in turn
+ * with its own policy, maze generator and counters, merging the counters on the way back up.
+ * Nothing is logged and nothing is allocated per step; each game costs only its maze.
+ * Game i of a run uses a maze seed drawn from the run's seed and i, so a run is reproducible
+ * and any one game can be played again on its own.
+ */
+public class GameSimulator {
+    private static final long GAMES_PER_TASK = 64;
+
+    private final int width;
+    private final int height;
+    private final int numCats;
+    private final int numCheeseToCollect;
+    private final int numCheeseOnBoard;
+    private final long maxSteps;
+    private final CatStrategyType catStrategyType;
+    private final Supplier<MousePolicy> policies;
+
+    public GameSimulator(int width, int height, int numCats, int numCheeseToCollect, long maxSteps,
+                         Supplier<MousePolicy> policies) {
+        this(width, height, numCats, numCheeseToCollect, maxSteps, CatStrategyType.RANDOM_WALK, policies);
+    }
+
+    public GameSimulator(int width, int height, int numCats, int numCheeseToCollect, long maxSteps,
+                         CatStrategyType catStrategyType, Supplier<MousePolicy> policies) {
+        this(width, height, numCats, numCheeseToCollect, MazeGame.DEFAULT_NUM_CHEESE_ON_BOARD, maxSteps,
+                catStrategyType, policies);
+    }
+
+    public GameSimulator(int width, int height, int numCats, int numCheeseToCollect, int numCheeseOnBoard,
+                         long maxSteps, CatStrategyType catStrategyType, Supplier<MousePolicy> policies) {
+        if (width < Maze.MIN_SIZE || height < Maze.MIN_SIZE || numCats < 0 || numCheeseToCollect < 1
+                || numCheeseOnBoard < 1 || maxSteps < 1 || catStrategyType == null) {
+            throw new IllegalArgumentException("Bad simulation settings");
+        }
+        this.width = width;
+        this.height = height;
+        this.numCats = numCats;
+        this.numCheeseToCollect = numCheeseToCollect;
+        this.numCheeseOnBoard = numCheeseOnBoard;
+        this.maxSteps = maxSteps;
+        this.catStrategyType = catStrategyType;
+        this.policies = policies;
+    }
+
+    public SimulationStats run(long numGames, long seed, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        SimulationStats stats = pool.invoke(new PlayoutTask(seed, 0, numGames));
+        stats.setElapsedNanos(System.nanoTime() - start);
+        return stats;
+    }
+
+    // The maze seed of game i in a run with the given seed.
+    public static long findMazeSeed(long seed, long gameNumber) {
+        return new GameRandom(seed + gameNumber).nextLong();
+    }
+
+    private SimulationStats playGames(long seed, long first, long end) {
+        SimulationStats stats = new SimulationStats();
+        MousePolicy policy = policies.get();
+        MazeGenerator generator = new ConstructiveMazeGenerator();
+        for (long gameNumber = first; gameNumber < end; gameNumber++) {
+            long mazeSeed = findMazeSeed(seed, gameNumber);
+            MazeGame game = new MazeGame(new Maze(width, height, generator, mazeSeed), numCats,
+                    numCheeseToCollect, catStrategyType, numCheeseOnBoard);
+            game.stopRecordingMoves();
+            playGame(game, policy, new GameRandom(~mazeSeed), stats);
+        }
+        return stats;
+    }
+
+    private void playGame(MazeGame game, MousePolicy policy, GameRandom random, SimulationStats stats) {
+        policy.startGame(game);
+        long steps = 0;
+        long rejected = 0;
+        boolean isWon = false;
+        boolean isLost = game.hasUserLost();
+        while (!isLost && !isWon && steps < maxSteps) {
+            steps++;
+            if (!game.recordPlayerMove(policy.chooseMove(game, random))) {
+                rejected++;
+            }
+            isWon = game.hasUserWon();
+            isLost = game.hasUserLost();
+            if (!isWon && !isLost) {
+                game.doCatMoves();
+                isLost = game.hasUserLost();
+            }
+        }
+        stats.recordGame(isWon, isLost, steps, rejected, game.getNumberCheeseCollected());
+    }
+
+    private class PlayoutTask extends RecursiveTask<SimulationStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final long first;
+        private final long end;
+
+        private PlayoutTask(long seed, long first, long end) {
+            this.seed = seed;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (end - first <= GAMES_PER_TASK) {
+                return playGames(seed, first, end);
+            }
+            long middle = (first + end) >>> 1;
+            PlayoutTask left = new PlayoutTask(seed, first, middle);
+            left.fork();
+            SimulationStats stats = new PlayoutTask(seed, middle, end).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ca.MazeGame.model;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compact binary form of a game, for saving games to disk and restoring them later.
+ * Every snapshot starts with the format number and whether it is a recording or a full snapshot.
+ * A game that can be replayed (see GameRecording) and whose move log is smaller than its board
+ * is written as a recording: width, height, seed, cat count, starting cheese goal, cat strategy,
+ * cheese on the board, flags (line of sight), sight radius and the move log.
+ * Restoring it lays out the maze again and replays the inputs.
+ * Any other game is written in full (in the buffer's byte order): width, height, flags (default
+ * layout, all revealed, line of sight), cat strategy, sight radius, generation
+ * attempts, maze seed, random state, version, player, cheese count then each cheese's index,
+ * cheese collected, cheese goal,
+ * starting cheese goal, cat count then each cat's index and last move, then the move log, then the
+ * wall bits and the visible bits of the board (one bit per cell, as in Board).
+ * Either way the restored game draws the same random numbers the saved game would have.
+ */
+public final class GameSnapshot {
+    private static final int FORMAT = 1;
+    private static final byte KIND_FULL = 0;
+    private static final byte KIND_RECORDING = 1;
+    private static final int FULL_HEADER_BYTES = 4 + 1 + 2 * 4 + 3 + 4 + 3 * 8 + 6 * 4;
+    private static final int RECORDING_HEADER_BYTES = 4 + 1 + 2 * 4 + 8 + 2 * 4 + 1 + 4 + 2;
+    private static final CatStrategyType[] CAT_STRATEGIES = CatStrategyType.values();
+    private static final int BYTES_PER_CHEESE = 4;
+    private static final int BYTES_PER_CAT = 4 + 1;
+    private static final int FLAG_DEFAULT_LAYOUT = 1;
+    private static final int FLAG_ALL_REVEALED = 2;
+    private static final int FLAG_LINE_OF_SIGHT = 4;
+    private static final MoveDirection[] MOVES = MoveDirection.values();
+
+    private GameSnapshot() {
+    }
+
+    public static int estimateSize(MazeGame game) {
+        if (isWrittenAsRecording(game)) {
+            return RECORDING_HEADER_BYTES + game.getMoveLog().estimateWrittenSize();
+        }
+        return FULL_HEADER_BYTES + game.getCheeseIndexes().length * BYTES_PER_CHEESE
+                + game.getCats().size() * BYTES_PER_CAT
+                + game.getMoveLog().estimateWrittenSize() + 2 * boardBytes(game);
+    }
+
+    private static int boardBytes(MazeGame game) {
+        return (game.getMazeWidth() * game.getMazeHeight() + 7) / 8;
+    }
+
+    private static boolean isWrittenAsRecording(MazeGame game) {
+        MoveLog moveLog = game.getMoveLog();
+        return game.getMaze().hasDefaultLayout() && moveLog.isComplete()
+                && moveLog.getByteLength() < boardBytes(game);
+    }
+
+    // The caller must keep the game from changing while it is written.
+    public static void write(MazeGame game, ByteBuffer out) {
+        if (isWrittenAsRecording(game)) {
+            writeRecording(game, out);
+        } else {
+            writeFull(game, out);
+        }
+    }
+
+    private static void writeRecording(MazeGame game, ByteBuffer out) {
+        out.putInt(FORMAT);
+        out.put(KIND_RECORDING);
+        out.putInt(game.getMazeWidth());
+        out.putInt(game.getMazeHeight());
+        out.putLong(game.getMaze().getSeed());
+        out.putInt(game.getCats().size());
+        out.putInt(game.getStartNumCheeseToCollect());
+        out.put((byte) game.getCatStrategyType().ordinal());
+        out.putInt(game.getCheeseIndexes().length);
+        SightRange sightRange = game.getSightRange();
+        out.put((byte) (sightRange.hasLineOfSight() ? FLAG_LINE_OF_SIGHT : 0));
+        out.put((byte) sightRange.getRadius());
+        game.getMoveLog().writeTo(out);
+    }
+
+    private static void writeFull(MazeGame game, ByteBuffer out) {
+        Maze maze = game.getMaze();
+        Board board = maze.getBoard();
+        SightRange sightRange = game.getSightRange();
+        out.putInt(FORMAT);
+        out.put(KIND_FULL);
+        out.putInt(maze.getWidth());
+        out.putInt(maze.getHeight());
+        out.put((byte) ((maze.hasDefaultLayout() ? FLAG_DEFAULT_LAYOUT : 0)
+                | (game.hasRevealedAll() ? FLAG_ALL_REVEALED : 0)
+                | (sightRange.hasLineOfSight() ? FLAG_LINE_OF_SIGHT : 0)));
+        out.put((byte) game.getCatStrategyType().ordinal());
+        out.put((byte) sightRange.getRadius());
+        out.putInt(maze.getGenerationAttempts());
+        out.putLong(maze.getSeed());
+        out.putLong(game.getRandom().getState());
+        out.putLong(game.getVersion());
+        out.putInt(game.getPlayerIndex());
+        int[] cheeseIndexes = game.getCheeseIndexes();
+        out.putInt(cheeseIndexes.length);
+        for (int cheeseIndex : cheeseIndexes) {
+            out.putInt(cheeseIndex);
+        }
+        out.putInt(game.getNumberCheeseCollected());
+        out.putInt(game.getNumberCheeseToCollect());
+        out.putInt(game.getStartNumCheeseToCollect());
+        List<Cat> cats = game.getCats();
+        out.putInt(cats.size());
+        for (Cat cat : cats) {
+            out.putInt(cat.getLocationIndex());
+            out.put((byte) cat.getLastMove().ordinal());
+        }
+        game.getMoveLog().writeTo(out);
+        board.writeWallBits(out);
+        board.writeVisibleBits(out);
+    }
+
+    public static MazeGame read(ByteBuffer in) {
+        int format = in.getInt();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unknown game snapshot format " + format);
+        }
+        return (in.get() == KIND_RECORDING) ? readRecording(in) : readFull(in);
+    }
+
+    private static MazeGame readRecording(ByteBuffer in) {
+        int width = in.getInt();
+        int height = in.getInt();
+        long seed = in.getLong();
+        int numCats = in.getInt();
+        int numCheeseToCollect = in.getInt();
+        CatStrategyType catStrategyType = CAT_STRATEGIES[in.get()];
+        int numCheeseOnBoard = in.getInt();
+        int flags = in.get();
+        SightRange sightRange = SightRange.of(in.get(), (flags & FLAG_LINE_OF_SIGHT) != 0);
+        MoveLog moveLog = MoveLog.readFrom(in);
+        return new GameRecording(width, height, seed, numCats, numCheeseToCollect, catStrategyType,
+                numCheeseOnBoard, sightRange, moveLog).replay();
+    }
+
+    private static MazeGame readFull(ByteBuffer in) {
+        int width = in.getInt();
+        int height = in.getInt();
+        int flags = in.get();
+        CatStrategyType catStrategyType = CAT_STRATEGIES[in.get()];
+        SightRange sightRange = SightRange.of(in.get(), (flags & FLAG_LINE_OF_SIGHT) != 0);
+        int generationAttempts = in.getInt();
+        long seed = in.getLong();
+        long randomState = in.getLong();
+        long version = in.getLong();
+        int playerIndex = in.getInt();
+        int[] cheeseIndexes = new int[in.getInt()];
+        for (int i = 0; i < cheeseIndexes.length; i++) {
+            cheeseIndexes[i] = in.getInt();
+        }
+        int numCheeseCollected = in.getInt();
+        int numCheeseToCollect = in.getInt();
+        int startNumCheeseToCollect = in.getInt();
+        int numCats = in.getInt();
+        int[] catIndexes = new int[numCats];
+        MoveDirection[] catMoves = new MoveDirection[numCats];
+        for (int i = 0; i < numCats; i++) {
+            catIndexes[i] = in.getInt();
+            catMoves[i] = MOVES[in.get()];
+        }
+        MoveLog moveLog = MoveLog.readFrom(in);
+
+        Board board = new Board(width, height);
+        board.readWallBits(in);
+        board.readVisibleBits(in);
+        Maze maze = new Maze(board, seed, (flags & FLAG_DEFAULT_LAYOUT) != 0, generationAttempts);
+        MazeGame game = new MazeGame(maze, new GameRandom(randomState), moveLog, startNumCheeseToCollect,
+                catStrategyType, sightRange, playerIndex, cheeseIndexes, numCheeseCollected, numCheeseToCollect,
+                (flags & FLAG_ALL_REVEALED) != 0, version);
+        for (int i = 0; i < numCats; i++) {
+            game.addRestoredCat(catIndexes[i], catMoves[i]);
+        }
+        return game;
+    }
+}
@@ -1,186 +1,116 @@
 package ca.MazeGame.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Manages the maze creation, and tracking the cell state.
  * Maze created ensures a path between all four corners, and
- * sets up some cycles (loops) inside the maze.
+ * sets up some cycles (loops) inside the maze. The layout comes from a
+ * pluggable MazeGenerator driven by a random source built from the maze's seed, so the
+ * default generator always lays out the same maze for the same size and seed.
  */
 public class Maze {
-    // Removal probability rather high because only removing walls that don't create "rooms"
-    private static final double WALL_REMOVE_PROBABILITY = 0.5;
+    // Smallest board with room for the four corner cells inside the outer wall.
+    public static final int MIN_SIZE = 5;
+    // Layouts that fail the checks are thrown away and generated again. The default generator always
+    // passes first time; Prim's passes less often the larger the board, and almost never above 40x40.
+    public static final int MAX_GENERATION_ATTEMPTS = 1000;
 
     private final int width;
     private final int height;
 
-    private CellState[][] board;
+    private final Board board;
+    private final long seed;
+    private final boolean hasDefaultLayout;
+    private int generationAttempts;
+    private CorridorGraph corridorGraph;
+    private OpenCellIndex openCellIndex;
 
     public Maze(int width, int height) {
-        this.width = width;
-        this.height = height;
-
-        do {
-            makeRandomMaze();
-        } while (!hasAllCornersConnected()
-                || !hasPathToAllOpenCells()
-                || hasOpen2x2Square() || hasWalled2x2Square());
+        this(width, height, ThreadLocalRandom.current().nextLong());
     }
 
+    public Maze(int width, int height, long seed) {
+        this(width, height, new ConstructiveMazeGenerator(), seed);
+    }
 
-    private Maze(int width, int height, boolean notUsed)  {
-        // For static factory method
+    // Callers making many mazes can pass in one generator to reuse its scratch space. Throws
+    // IllegalStateException if the generator fails the checks MAX_GENERATION_ATTEMPTS times in a row.
+    public Maze(int width, int height, MazeGenerator generator, long seed) {
+        if (width < MIN_SIZE || height < MIN_SIZE) {
+            throw new IllegalArgumentException("Maze must be at least " + MIN_SIZE + "x" + MIN_SIZE);
+        }
         this.width = width;
         this.height = height;
-        board = new CellState[height][width];
-    }
-
-    private void makeRandomMaze() {
-        board = new CellState[height][width];
+        this.board = new Board(width, height);
+        this.seed = seed;
+        this.hasDefaultLayout = generator.getClass() == ConstructiveMazeGenerator.class;
 
-        fillMazeWithWalls();
-        buildMazePaths();
-        clearMazeCorners();
-        addLoopsToMaze();
-    }
-    private void fillMazeWithWalls() {
-        for (int y = 0; y < height; y++){
-            for (int x = 0; x < width; x++) {
-                if (x == 0 || x == width - 1 || y == 0 || y == height - 1) {
-                    // Walls on edge will be visible.
-                    board[y][x] = new CellState(true, true);
-                } else {
-                    board[y][x] = new CellState(true);
-                }
-            }
-        }
-    }
-    // Use Randomized Prim's algorithm, as described here:
-    // http://en.wikipedia.org/wiki/Maze_generation_algorithm
-    private void buildMazePaths() {
-        // Maintain a list of candidate locations to change from a wall to a space.
-        List<CellLocation> candidates = new ArrayList<>();
-
-        // Start with the middle element in the maze.
-        candidates.add(new CellLocation(width/2,height/2));
-
-        // While there are spots to investigate, keep looping.
-        while (candidates.size() > 0) {
-            // Randomly pick a candidate cell to investigate.
-            Collections.shuffle(candidates);
-            CellLocation location = candidates.get(0);
-            candidates.remove(0);
-
-            // Remove the wall, if possible
-            if (okToRemoveWall(location)) {
-                int x = location.getX();
-                int y = location.getY();
-
-                // Remove wall
-                board[y][x] = new CellState(false);
-
-                // Add surrounding squares to list to explore.
-                candidates.add(new CellLocation(x + 1, y));
-                candidates.add(new CellLocation(x - 1, y));
-                candidates.add(new CellLocation(x, y + 1));
-                candidates.add(new CellLocation(x, y - 1));
-            }
-        }
-    }
-    private void clearMazeCorners() {
-        // Ensure starting cells for player and cats are free of walls:
-        board[1][1] = new CellState(false);
-        board[1][width-2] = new CellState(false);
-        board[height-2][1] = new CellState(false);
-        board[height-2][width-2] = new CellState(false);
-    }
-    private void addLoopsToMaze() {
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                if (board[y][x].isWall()) {
-                    boolean shouldRemove = Math.random() <= WALL_REMOVE_PROBABILITY;
-                    boolean doesRemovalMakeEmptySquare = removalMakesEmptySquare(x, y);
-                    if (shouldRemove && !doesRemovalMakeEmptySquare) {
-                        board[y][x] = new CellState(false);
-                    }
-                }
+        SplittableRandom random = new SplittableRandom(seed);
+        do {
+            if (generationAttempts == MAX_GENERATION_ATTEMPTS) {
+                throw new IllegalStateException(generator.getClass().getSimpleName() + " made no acceptable "
+                        + width + "x" + height + " maze in " + MAX_GENERATION_ATTEMPTS + " attempts");
             }
-        }
+            generator.generate(board, random);
+            generationAttempts++;
+        } while (!isAcceptableMaze());
     }
 
-    private boolean removalMakesEmptySquare(int x, int y) {
-        for (int dy = -1; dy <= 1; dy += 2) {
-            for (int dx = -1; dx <= 1; dx +=2) {
-                boolean isEmptyCorner = !board[y + dy][x + dx].isWall();
-                boolean isEmptyHorizontally = !board[y + dy][x].isWall();
-                boolean isEmptyVertically = !board[y][x + dx].isWall();
-                if (isEmptyCorner && isEmptyHorizontally && isEmptyVertically) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    // Rebuild a saved maze: see GameSnapshot.
+    Maze(Board board, long seed, boolean hasDefaultLayout, int generationAttempts) {
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.board = board;
+        this.seed = seed;
+        this.hasDefaultLayout = hasDefaultLayout;
+        this.generationAttempts = generationAttempts;
     }
 
-    private boolean okToRemoveWall(CellLocation location) {
-        int x = location.getX();
-        int y = location.getY();
-        boolean isWall = board[y][x].isWall();
-        boolean isTop = (y == 0);
-        boolean isBottom = (y == height - 1);
-        boolean isLeft = (x == 0);
-        boolean isRight = (x == width - 1);
-        boolean isEdge = isTop || isBottom || isLeft || isRight;
-
-        if (!isWall || isEdge) {
-            return false;
-        }
-
-        final int MIN_WALL_COUNT_WHEN_NOT_CONNECTED = 2;
-        boolean breaksMaze = (countWallsAroundCell(location) <= MIN_WALL_COUNT_WHEN_NOT_CONNECTED);
-        return !breaksMaze;
+    // Package-private so the seed stays out of the game's JSON: clients could use it to find the cheese.
+    long getSeed() {
+        return seed;
     }
 
-    private int countWallsAroundCell(CellLocation location) {
-        int x = location.getX();
-        int y = location.getY();
-        int wallCount = 0;
-        wallCount += board[y+1][x].isWall() ? 1 : 0;
-        wallCount += board[y][x+1].isWall() ? 1 : 0;
-        wallCount += board[y-1][x].isWall() ? 1 : 0;
-        wallCount += board[y][x-1].isWall() ? 1 : 0;
-        return wallCount;
+    // True when new Maze(width, height, seed) builds this same layout again.
+    boolean hasDefaultLayout() {
+        return hasDefaultLayout;
     }
 
-    private boolean hasAllCornersConnected() {
-        final CellLocation LOCATION_TOP_LEFT     = new CellLocation(1, 1);
-        final CellLocation LOCATION_TOP_RIGHT    = new CellLocation(width - 2, 1);
-        final CellLocation LOCATION_BOTTOM_LEFT  = new CellLocation(1, height - 2);
-        final CellLocation LOCATION_BOTTOM_RIGHT = new CellLocation(width - 2, height - 2);
+    private boolean isAcceptableMaze() {
+        // One connectivity labelling answers both the corner and the open cell checks.
+        Connectivity connectivity = new Connectivity(board);
+        return hasAllCornersConnected(connectivity)
+                && connectivity.areAllOpenCellsConnected()
+                && !hasOpen2x2Square() && !hasWalled2x2Square();
+    }
 
-        PathFinder pathfinder = new PathFinder(board);
+    private boolean hasAllCornersConnected(Connectivity connectivity) {
+        final int LOCATION_TOP_LEFT     = board.indexOf(1, 1);
+        final int LOCATION_TOP_RIGHT    = board.indexOf(width - 2, 1);
+        final int LOCATION_BOTTOM_LEFT  = board.indexOf(1, height - 2);
+        final int LOCATION_BOTTOM_RIGHT = board.indexOf(width - 2, height - 2);
 
-        return pathfinder.hasPath(LOCATION_TOP_LEFT, LOCATION_TOP_RIGHT)
-                && pathfinder.hasPath(LOCATION_TOP_LEFT, LOCATION_BOTTOM_LEFT)
-                && pathfinder.hasPath(LOCATION_TOP_LEFT, LOCATION_BOTTOM_RIGHT);
+        return connectivity.hasPath(LOCATION_TOP_LEFT, LOCATION_TOP_RIGHT)
+                && connectivity.hasPath(LOCATION_TOP_LEFT, LOCATION_BOTTOM_LEFT)
+                && connectivity.hasPath(LOCATION_TOP_LEFT, LOCATION_BOTTOM_RIGHT);
     }
 
     public boolean hasOpen2x2Square(){
-        return hasInternal2x2SquareMatchingWallState(new CellState(false));
+        return hasInternal2x2SquareMatchingWallState(false);
     }
     public boolean hasWalled2x2Square(){
-        return hasInternal2x2SquareMatchingWallState(new CellState(true));
+        return hasInternal2x2SquareMatchingWallState(true);
     }
-    private boolean hasInternal2x2SquareMatchingWallState(CellState state) {
+    private boolean hasInternal2x2SquareMatchingWallState(boolean isWall) {
         for (int y = 1; y < height - 2; y++) {
             for (int x = 1; x < width - 2; x++) {
                 // Is this the top left of a square of walls?
-                if (board[y][x].isWall() == state.isWall()
-                        && board[y + 1][x].isWall() == state.isWall()
-                        && board[y][x + 1].isWall() == state.isWall()
-                        && board[y + 1][x + 1].isWall() == state.isWall()
+                if (board.isWall(x, y) == isWall
+                        && board.isWall(x, y + 1) == isWall
+                        && board.isWall(x + 1, y) == isWall
+                        && board.isWall(x + 1, y + 1) == isWall
                 ) {
                     return true;
                 }
@@ -190,12 +120,17 @@ public class Maze {
     }
 
 
-    public CellLocation getRandomLocationInsideMaze() {
-        int x = (int) (Math.random() * (width-2)) + 1;
-        int y = (int) (Math.random() * (height-2)) + 1;
+    public CellLocation pickRandomLocationInsideMaze(GameRandom random) {
+        int x = random.nextInt(width-2) + 1;
+        int y = random.nextInt(height-2) + 1;
         return new CellLocation(x, y);
     }
 
+    // Number of layouts generated before one passed the checks (1 if the first one did).
+    public int getGenerationAttempts() {
+        return generationAttempts;
+    }
+
     public int getWidth() {
         return width;
     }
@@ -212,14 +147,42 @@ public class Maze {
     }
 
 
-    public CellState[][] getBoard() {
+    // Rough heap footprint of the board (two bits per cell), the open cell index once built, and the
+    // corridor graph. The graph is counted before it is built, since any hint or corridor cat can
+    // build it and the game registry only estimates a game's size once.
+    public long estimateMemoryBytes() {
+        long graphBytes = (corridorGraph == null)
+                ? CorridorGraph.estimateMemoryBytes(width * height) : corridorGraph.estimateMemoryBytes();
+        return board.estimateMemoryBytes() + graphBytes
+                + (openCellIndex == null ? 0 : openCellIndex.estimateMemoryBytes());
+    }
+
+    // The open cells reachable from the top left corner, where the player starts. Built when the
+    // first game on this maze places its cheese.
+    OpenCellIndex getOpenCellIndex() {
+        if (openCellIndex == null) {
+            openCellIndex = new OpenCellIndex(board, board.indexOf(1, 1));
+        }
+        return openCellIndex;
+    }
+
+    // Built on first use, as most games never ask for a path. Package-private so the graph stays
+    // out of the game's JSON.
+    CorridorGraph getCorridorGraph() {
+        if (corridorGraph == null) {
+            corridorGraph = new CorridorGraph(board);
+        }
+        return corridorGraph;
+    }
+
+    public Board getBoard() {
         return board;
     }
 
     public CellState getCellState(CellLocation cell) {
         int x = cell.getX();
         int y = cell.getY();
-        return board[y][x];
+        return board.getCellState(x, y);
     }
 
     public boolean isCellVisible(CellLocation cell) {
@@ -228,7 +191,7 @@ public class Maze {
         }
         int x = cell.getX();
         int y = cell.getY();
-        return board[y][x].isVisible();
+        return board.isVisible(x, y);
     }
 
     public boolean isCellAWall(CellLocation cell) {
@@ -237,7 +200,7 @@ public class Maze {
         }
         int x = cell.getX();
         int y = cell.getY();
-        return board[y][x].isWall();
+        return board.isWall(x, y);
     }
 
     public boolean isCellOpen(CellLocation cell) {
@@ -246,33 +209,20 @@ public class Maze {
         }
         int x = cell.getX();
         int y = cell.getY();
-        return !board[y][x].isWall();
+        return !board.isWall(x, y);
     }
 
     public void recordCellVisible(CellLocation pos) {
-        CellState current = board[pos.getY()][pos.getX()];
-        board[pos.getY()][pos.getX()] = current.makeVisible();
+        board.makeVisible(pos.getX(), pos.getY());
 
     }
 
 
     public boolean hasPathToAllOpenCells(){
-        // Path from top left (user starting point):
-        final CellLocation LOCATION_TOP_LEFT = new CellLocation(1, 1);
-        PathFinder pathfinder = new PathFinder(board);
-
-        // to all possible open spaces
-        for (int y = 1; y < height - 1; y++) {
-            for (int x = 1; x < width - 1; x++) {
-                CellLocation loc = new CellLocation(x, y);
-                boolean openCell = !isCellAWall(loc);
-                boolean hasNoPath = !pathfinder.hasPath(LOCATION_TOP_LEFT, loc);
-                if (openCell && hasNoPath) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        // Path from top left (user starting point) to all possible open spaces:
+        // the edge of the board is all walls, so this holds iff the open cells form one region.
+        Connectivity connectivity = new Connectivity(board);
+        return !board.isWall(1, 1) && connectivity.areAllOpenCellsConnected();
     }
 
 }
@@ -1,38 +1,167 @@
 package ca.MazeGame.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Game state: the maze, the player, the cheese (one piece or several at once) and the cats.
+ * Positions are kept as packed board indexes (y * width + x) so moves and cat ticks do not
+ * allocate; CellLocation objects are only handed out through the public accessors.
+ *
+ * Every change to the game bumps its version, and every cell it reveals is recorded in a
+ * bounded change log, so clients holding an older version can fetch only what changed. Which
+ * cells the mouse reveals as it moves is up to the game's SightRange (see FogOfWar).
+ *
+ * All randomness (cheese placement, cats) comes from the game's own GameRandom, seeded from the
+ * maze's seed, and every accepted input goes into a compact MoveLog. A game on a default maze is
+ * therefore fully described by its size, seed, starting setup and inputs: see GameRecording.
+ * How the cats move is up to the game's CatStrategy, chosen when the game is created.
+ *
+ * Cheese and extra cats go on random cells picked from the maze's OpenCellIndex with a single
+ * draw each, so they are always connected to the player.
+ */
 public class MazeGame {
-    private static final int MAZE_SIZE_WIDTH  = 20;
-    private static final int MAZE_SIZE_HEIGHT = 15;
-    private static final int DEFAULT_NUM_CHEESE_TO_COLLECT = 5;
+    public static final int DEFAULT_MAZE_WIDTH  = 20;
+    public static final int DEFAULT_MAZE_HEIGHT = 15;
+    public static final int DEFAULT_NUM_CATS = 3;
+    public static final int DEFAULT_NUM_CHEESE_TO_COLLECT = 5;
+    public static final int DEFAULT_NUM_CHEESE_ON_BOARD = 1;
+    private static final int NO_CELL = -1;
+    private static final int NO_SLOT = -1;
+    private static final int CHANGE_LOG_CAPACITY = 256;
+    // Keeps the game's random stream apart from the one the maze was laid out with.
+    private static final long PLAY_SEED_OFFSET = 0x632BE59BD9B4E019L;
 
-    private static final CellLocation LOCATION_TOP_LEFT     = new CellLocation(1, 1);
-    private static final CellLocation LOCATION_TOP_RIGHT    = new CellLocation(MAZE_SIZE_WIDTH - 2, 1);
-    private static final CellLocation LOCATION_BOTTOM_LEFT  = new CellLocation(1, MAZE_SIZE_HEIGHT - 2);
-    private static final CellLocation LOCATION_BOTTOM_RIGHT = new CellLocation(MAZE_SIZE_WIDTH - 2, MAZE_SIZE_HEIGHT - 2);
+    private final Maze maze;
+    private final Board board;
+    private final GameRandom random;
+    private final MoveLog moveLog;
+    private final int startNumCheeseToCollect;
+    private final CatStrategyType catStrategyType;
+    private final CatStrategy catStrategy;
+    private final SightRange sightRange;
+    private final FogOfWar fogOfWar;
 
-    private final Maze maze = new Maze(MAZE_SIZE_WIDTH, MAZE_SIZE_HEIGHT);
+    private final CellLocation locationTopLeft;
+    private final CellLocation locationTopRight;
+    private final CellLocation locationBottomLeft;
+    private final CellLocation locationBottomRight;
 
-    private CellLocation playerLocation = LOCATION_TOP_LEFT;
-    private CellLocation cheeseLocation;
+    private int playerIndex;
+    // One slot per cheese on the board; NO_CELL if a cheese could not be placed.
+    private final int[] cheeseIndexes;
+    // Scratch space for the cells a new cheese must not land on.
+    private final int[] excludedCells;
     private final List<Cat> cats = new ArrayList<>();
     private int numCheeseCollected;
-    private int numCheeseToCollect = DEFAULT_NUM_CHEESE_TO_COLLECT;
+    private int numCheeseToCollect;
+    private boolean isAllRevealed;
+
+    // Change log: a ring of revealed cell indexes, each tagged with the version that revealed it.
+    private long version;
+    private final int[] changedCells = new int[CHANGE_LOG_CAPACITY];
+    private final long[] changedCellVersions = new long[CHANGE_LOG_CAPACITY];
+    private int changeCount;
+    private int nextChangeSlot;
+    // Changes after this version are all still in the log.
+    private long oldestCompleteVersion;
 
     public MazeGame() {
-        placeNewCheeseOnBoard();
-        placeCatsOnBoard();
-        setVisibleAroundPlayerCell();
+        this(new Maze(DEFAULT_MAZE_WIDTH, DEFAULT_MAZE_HEIGHT));
+    }
+
+    public MazeGame(Maze maze) {
+        this(maze, DEFAULT_NUM_CATS, DEFAULT_NUM_CHEESE_TO_COLLECT);
+    }
+
+    // Start a game on an already generated maze of any size. The first three cats start in
+    // the other three corners; any more start on random open cells other than the player's.
+    public MazeGame(Maze maze, int numCats, int numCheeseToCollect) {
+        this(maze, numCats, numCheeseToCollect, CatStrategyType.RANDOM_WALK);
+    }
+
+    public MazeGame(Maze maze, int numCats, int numCheeseToCollect, CatStrategyType catStrategyType) {
+        this(maze, numCats, numCheeseToCollect, catStrategyType, DEFAULT_NUM_CHEESE_ON_BOARD);
+    }
+
+    // Several cheeses can be out at once, up to one on every open cell but the player's; eating
+    // one puts down another elsewhere.
+    public MazeGame(Maze maze, int numCats, int numCheeseToCollect, CatStrategyType catStrategyType,
+                    int numCheeseOnBoard) {
+        this(maze, numCats, numCheeseToCollect, catStrategyType, numCheeseOnBoard, SightRange.DEFAULT);
+    }
+
+    public MazeGame(Maze maze, int numCats, int numCheeseToCollect, CatStrategyType catStrategyType,
+                    int numCheeseOnBoard, SightRange sightRange) {
+        this(maze, numCheeseToCollect, new GameRandom(maze.getSeed() + PLAY_SEED_OFFSET), new MoveLog(),
+                numCheeseToCollect, catStrategyType, sightRange, new int[findCheeseSlotCount(maze, numCheeseOnBoard)]);
+        this.playerIndex = indexOf(locationTopLeft);
+        placeAllCheese();
+        placeCatsOnBoard(numCats);
+        recordRevealedCells(fogOfWar.revealFrom(playerIndex));
+    }
+
+    // Rebuild a saved game: see GameSnapshot. The change log starts empty, so clients of the
+    // restored game fetch the full board once.
+    MazeGame(Maze maze, GameRandom random, MoveLog moveLog, int startNumCheeseToCollect,
+             CatStrategyType catStrategyType, SightRange sightRange, int playerIndex, int[] cheeseIndexes,
+             int numCheeseCollected, int numCheeseToCollect, boolean isAllRevealed, long version) {
+        this(maze, numCheeseToCollect, random, moveLog, startNumCheeseToCollect, catStrategyType, sightRange,
+                cheeseIndexes);
+        this.isAllRevealed = isAllRevealed;
+        this.playerIndex = playerIndex;
+        this.numCheeseCollected = numCheeseCollected;
+        this.version = version;
+        this.oldestCompleteVersion = version;
+    }
+
+    private MazeGame(Maze maze, int numCheeseToCollect, GameRandom random, MoveLog moveLog,
+                     int startNumCheeseToCollect, CatStrategyType catStrategyType, SightRange sightRange,
+                     int[] cheeseIndexes) {
+        this.maze = maze;
+        this.board = maze.getBoard();
+        this.numCheeseToCollect = numCheeseToCollect;
+        this.random = random;
+        this.moveLog = moveLog;
+        this.startNumCheeseToCollect = startNumCheeseToCollect;
+        this.catStrategyType = catStrategyType;
+        this.catStrategy = catStrategyType.create();
+        this.sightRange = sightRange;
+        this.fogOfWar = new FogOfWar(board, sightRange);
+        this.cheeseIndexes = cheeseIndexes;
+        this.excludedCells = new int[cheeseIndexes.length + 1];
+
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+        locationTopLeft     = CellLocation.of(1, 1);
+        locationTopRight    = CellLocation.of(width - 2, 1);
+        locationBottomLeft  = CellLocation.of(1, height - 2);
+        locationBottomRight = CellLocation.of(width - 2, height - 2);
     }
 
     public CellLocation getPlayerLocation() {
-        return playerLocation;
+        return locationOf(playerIndex);
+    }
+
+    private static int findCheeseSlotCount(Maze maze, int numCheeseOnBoard) {
+        int freeCells = maze.getOpenCellIndex().size() - 1;
+        return Math.max(1, Math.min(numCheeseOnBoard, freeCells));
     }
 
+    // The first cheese, for clients that show only one.
     public CellLocation getCheeseLocation() {
-        return cheeseLocation;
+        return cheeseIndexes[0] == NO_CELL ? null : locationOf(cheeseIndexes[0]);
+    }
+
+    public List<CellLocation> getCheeseLocations() {
+        List<CellLocation> locations = new ArrayList<>(cheeseIndexes.length);
+        for (int index : cheeseIndexes) {
+            if (index != NO_CELL) {
+                locations.add(locationOf(index));
+            }
+        }
+        return locations;
     }
 
     public List<Cat> getCats() {
@@ -43,10 +172,98 @@ public class MazeGame {
         return maze;
     }
 
-    private void placeCatsOnBoard() {
-        cats.add(new Cat(this, LOCATION_TOP_RIGHT));
-        cats.add(new Cat(this, LOCATION_BOTTOM_RIGHT));
-        cats.add(new Cat(this, LOCATION_BOTTOM_LEFT));
+    // Rough heap footprint of the maze, the change log and the scratch space of the cat strategy
+    // and the fog of war.
+    public long estimateMemoryBytes() {
+        final int BYTES_PER_LOG_ENTRY = 4 + 8;
+        return maze.estimateMemoryBytes() + (long) CHANGE_LOG_CAPACITY * BYTES_PER_LOG_ENTRY
+                + catStrategy.estimateMemoryBytes(maze.getWidth() * maze.getHeight())
+                + fogOfWar.estimateMemoryBytes();
+    }
+
+    private void placeCatsOnBoard(int numCats) {
+        CellLocation[] corners = {locationTopRight, locationBottomRight, locationBottomLeft};
+        for (int i = 0; i < numCats; i++) {
+            int index = (i < corners.length) ? indexOf(corners[i]) : pickOpenIndexAwayFromPlayer();
+            cats.add(new Cat(this, index));
+        }
+    }
+
+    void addRestoredCat(int locationIndex, MoveDirection lastMove) {
+        cats.add(new Cat(this, locationIndex, lastMove));
+    }
+
+    int getPlayerIndex() {
+        return playerIndex;
+    }
+    // The cheese cells, NO_CELL for any that could not be placed. Callers must not change them.
+    int[] getCheeseIndexes() {
+        return cheeseIndexes;
+    }
+    GameRandom getRandom() {
+        return random;
+    }
+    MoveLog getMoveLog() {
+        return moveLog;
+    }
+    int getStartNumCheeseToCollect() {
+        return startNumCheeseToCollect;
+    }
+    CatStrategy getCatStrategy() {
+        return catStrategy;
+    }
+    CatStrategyType getCatStrategyType() {
+        return catStrategyType;
+    }
+    SightRange getSightRange() {
+        return sightRange;
+    }
+
+    // Stop logging inputs, for games that will never be replayed or saved as a recording.
+    public void stopRecordingMoves() {
+        moveLog.stop();
+    }
+
+    // Everything needed to play this game again from the start, or null if it cannot be:
+    // the maze was not laid out by the default generator, or the move log outgrew its cap.
+    public GameRecording makeRecording() {
+        if (!maze.hasDefaultLayout() || !moveLog.isComplete()) {
+            return null;
+        }
+        return new GameRecording(maze.getWidth(), maze.getHeight(), maze.getSeed(), cats.size(),
+                startNumCheeseToCollect, catStrategyType, cheeseIndexes.length, sightRange, moveLog.copy());
+    }
+
+    private void placeAllCheese() {
+        excludedCells[0] = playerIndex;
+        int placed = maze.getOpenCellIndex().pickCells(random, cheeseIndexes.length, excludedCells, 1, cheeseIndexes);
+        Arrays.fill(cheeseIndexes, placed, cheeseIndexes.length, NO_CELL);
+    }
+
+    // A new cheese in place of the one just eaten: anywhere but the player's cell and the other cheeses.
+    private void replaceCheese(int slot) {
+        excludedCells[0] = playerIndex;
+        int count = 1;
+        for (int i = 0; i < cheeseIndexes.length; i++) {
+            if (i != slot) {
+                excludedCells[count++] = cheeseIndexes[i];
+            }
+        }
+        cheeseIndexes[slot] = maze.getOpenCellIndex().pickCell(random, excludedCells, count);
+    }
+
+    private int pickOpenIndexAwayFromPlayer() {
+        excludedCells[0] = playerIndex;
+        return maze.getOpenCellIndex().pickCell(random, excludedCells, 1);
+    }
+
+    private int findCheeseSlot(int index) {
+        for (int slot = 0; slot < cheeseIndexes.length; slot++) {
+            if (cheeseIndexes[slot] == index) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
     }
 
     public boolean hasUserWon() {
@@ -54,7 +271,7 @@ public class MazeGame {
         return !hasUserLost() && collectedEnoughCheese;
     }
     public boolean hasUserLost() {
-        return isCatAtLocation(playerLocation);
+        return isCatAtIndex(playerIndex);
     }
 
     public int getNumberCheeseToCollect() {
@@ -64,94 +281,195 @@ public class MazeGame {
         return numCheeseCollected;
     }
 
+    // Staying put is not a move: it would change the version without being logged.
     public boolean isValidPlayerMove(MoveDirection move) {
-        CellLocation targetLocation = playerLocation.getMovedLocation(move);
-        return maze.isCellOpen(targetLocation);
+        return move != MoveDirection.MOVE_NONE && isCellOpen(getMovedIndex(playerIndex, move));
     }
 
     public boolean isCellOpen(CellLocation cell) {
         return maze.isCellOpen(cell);
     }
 
+    // The player and cats always stay inside the outer wall, so a cell one step away
+    // from them is always on the board.
+    boolean isCellOpen(int index) {
+        return !board.isWall(index);
+    }
+
+    int getMovedIndex(int index, MoveDirection move) {
+        return index + move.getDeltaX() + move.getDeltaY() * board.getWidth();
+    }
+
     public boolean recordPlayerMove(MoveDirection move) {
         if(isValidPlayerMove(move)){
-            playerLocation = playerLocation.getMovedLocation(move);
+            version++;
+            moveLog.recordPlayerMove(move);
+            playerIndex = getMovedIndex(playerIndex, move);
 
-            setVisibleAroundPlayerCell();
+            recordRevealedCells(fogOfWar.revealAfterMove(playerIndex, move));
 
             // Compute goal states achieved
-            if (isCheeseAtLocation(playerLocation)) {
+            int cheeseSlot = findCheeseSlot(playerIndex);
+            if (cheeseSlot != NO_SLOT) {
                 numCheeseCollected++;
-                placeNewCheeseOnBoard();
+                replaceCheese(cheeseSlot);
             }
             return true;
         }
         return false;
     }
 
-    private void placeNewCheeseOnBoard() {
-        // Find a random open location which is connected to where the player is,
-        // but which is not where the player currently is.
-        do {
-            cheeseLocation = maze.getRandomLocationInsideMaze();
-        } while (isMouseAtLocation(cheeseLocation)
-                || maze.isCellAWall(cheeseLocation));
-
-    }
-
-    private void setVisibleAroundPlayerCell() {
-        CellLocation up = playerLocation.getMovedLocation(MoveDirection.MOVE_UP);
-        CellLocation down = playerLocation.getMovedLocation(MoveDirection.MOVE_DOWN);
-        CellLocation right = playerLocation.getMovedLocation(MoveDirection.MOVE_RIGHT);
-        CellLocation left = playerLocation.getMovedLocation(MoveDirection.MOVE_LEFT);
-
-        // Current cell, Up, Down, Right, Left.
-        maze.recordCellVisible(playerLocation);
-        maze.recordCellVisible(up);
-        maze.recordCellVisible(down);
-        maze.recordCellVisible(right);
-        maze.recordCellVisible(left);
-
-        // 45' Angles
-        maze.recordCellVisible(up.getMovedLocation(MoveDirection.MOVE_RIGHT));
-        maze.recordCellVisible(up.getMovedLocation(MoveDirection.MOVE_LEFT));
-        maze.recordCellVisible(down.getMovedLocation(MoveDirection.MOVE_RIGHT));
-        maze.recordCellVisible(down.getMovedLocation(MoveDirection.MOVE_LEFT));
+    private void recordRevealedCells(int count) {
+        for (int i = 0; i < count; i++) {
+            recordChangedCell(fogOfWar.getRevealedCell(i));
+        }
     }
 
     public CellState getCellState(CellLocation cell) {
         return maze.getCellState(cell);
     }
     public boolean isMouseAtLocation(CellLocation cell) {
-        return playerLocation.equals(cell);
+        return playerIndex == indexOf(cell);
     }
     public boolean isCatAtLocation(CellLocation cell) {
-        for (Cat cat : cats) {
-            CellLocation catLocation = cat.getLocation();
-            if (catLocation.equals(cell)) {
+        int index = indexOf(cell);
+        return index != NO_CELL && isCatAtIndex(index);
+    }
+    private boolean isCatAtIndex(int index) {
+        for (int i = 0; i < cats.size(); i++) {
+            if (cats.get(i).getLocationIndex() == index) {
                 return true;
             }
         }
         return false;
     }
     public boolean isCheeseAtLocation(CellLocation cell) {
-        return cheeseLocation != null && cheeseLocation.equals(cell);
+        int index = indexOf(cell);
+        return index != NO_CELL && findCheeseSlot(index) != NO_SLOT;
     }
 
-    public static int getMazeWidth() {
-        return MAZE_SIZE_WIDTH;
+    public int getMazeWidth() {
+        return maze.getWidth();
     }
-    public static int getMazeHeight() {
-        return MAZE_SIZE_HEIGHT;
+    public int getMazeHeight() {
+        return maze.getHeight();
     }
 
     public void doCatMoves() {
-        for (Cat cat : cats) {
-            cat.doMove();
+        version++;
+        moveLog.recordCatMoves();
+        catStrategy.prepareMoves(this);
+        for (int i = 0; i < cats.size(); i++) {
+            cats.get(i).doMove();
         }
     }
 
     public void setNumberCheeseToCollect(int numCheeseToCollect) {
+        version++;
+        moveLog.recordCheeseGoal(numCheeseToCollect);
         this.numCheeseToCollect = numCheeseToCollect;
     }
+
+    // Hint: the player's first move on a shortest path to the nearest cheese (see CorridorGraph),
+    // or MOVE_NONE if there is none. Asking does not change the game.
+    public MoveDirection findMoveTowardsCheese() {
+        int cheese = findNearestCheeseIndex();
+        if (cheese == NO_CELL) {
+            return MoveDirection.MOVE_NONE;
+        }
+        return maze.getCorridorGraph().findFirstMove(playerIndex, cheese);
+    }
+
+    // Moves from the player to the nearest cheese, or CorridorGraph.NO_PATH.
+    public int findDistanceToCheese() {
+        int cheese = findNearestCheeseIndex();
+        if (cheese == NO_CELL) {
+            return CorridorGraph.NO_PATH;
+        }
+        return maze.getCorridorGraph().findDistance(playerIndex, cheese);
+    }
+
+    private int findNearestCheeseIndex() {
+        CorridorGraph graph = maze.getCorridorGraph();
+        int nearest = NO_CELL;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int cheese : cheeseIndexes) {
+            int distance = (cheese == NO_CELL) ? CorridorGraph.NO_PATH : graph.findDistance(playerIndex, cheese);
+            if (distance != CorridorGraph.NO_PATH && distance < nearestDistance) {
+                nearest = cheese;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    // Cheat: show the whole board from now on.
+    public void revealAll() {
+        moveLog.recordShowAll();
+        isAllRevealed = true;
+        startUnloggedVersion();
+    }
+
+    // Not a bean getter, so it stays out of the game's JSON like the rest of the visibility state.
+    public boolean hasRevealedAll() {
+        return isAllRevealed;
+    }
+
+    // Starts a new version that cannot be reached through the change log, for changes to the
+    // board that are not recorded cell by cell (such as revealing the whole maze).
+    public void startUnloggedVersion() {
+        version++;
+        oldestCompleteVersion = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Indexes of the cells changed after the given version, newest first, or null when the
+    // change log no longer reaches back that far and the client needs the full board.
+    public int[] findCellsChangedSince(long sinceVersion) {
+        if (sinceVersion < oldestCompleteVersion || sinceVersion > version) {
+            return null;
+        }
+        int count = 0;
+        int slot = nextChangeSlot;
+        while (count < changeCount) {
+            slot = (slot == 0) ? CHANGE_LOG_CAPACITY - 1 : slot - 1;
+            if (changedCellVersions[slot] <= sinceVersion) {
+                break;
+            }
+            count++;
+        }
+        int[] cells = new int[count];
+        slot = nextChangeSlot;
+        for (int i = 0; i < count; i++) {
+            slot = (slot == 0) ? CHANGE_LOG_CAPACITY - 1 : slot - 1;
+            cells[i] = changedCells[slot];
+        }
+        return cells;
+    }
+
+    private void recordChangedCell(int index) {
+        if (changeCount == CHANGE_LOG_CAPACITY) {
+            // The oldest entry is about to be overwritten: deltas from before it are gone.
+            oldestCompleteVersion = Math.max(oldestCompleteVersion, changedCellVersions[nextChangeSlot]);
+        } else {
+            changeCount++;
+        }
+        changedCells[nextChangeSlot] = index;
+        changedCellVersions[nextChangeSlot] = version;
+        nextChangeSlot = (nextChangeSlot + 1) % CHANGE_LOG_CAPACITY;
+    }
+
+    private int indexOf(CellLocation cell) {
+        int x = cell.getX();
+        int y = cell.getY();
+        boolean onBoard = x >= 0 && x < board.getWidth() && y >= 0 && y < board.getHeight();
+        return onBoard ? board.indexOf(x, y) : NO_CELL;
+    }
+
+    private CellLocation locationOf(int index) {
+        return CellLocation.of(board.xOf(index), board.yOf(index));
+    }
 }
@@ -0,0 +1,14 @@
+package ca.MazeGame.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Algorithm used by Maze to lay out walls and open cells on a board.
+ * Implementations may keep scratch buffers between calls, so an instance
+ * should only be used by one thread at a time.
+ */
+public interface MazeGenerator {
+    // Overwrite every cell of the board with a new maze, drawing all randomness from random.
+    // The outer edge must be walls, and the four cells diagonally inside the corners must be open.
+    void generate(Board board, SplittableRandom random);
+}
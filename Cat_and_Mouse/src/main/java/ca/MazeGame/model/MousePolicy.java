@@ -0,0 +1,13 @@
+package ca.MazeGame.model;
+
+/**
+ * Chooses the mouse's next move in a simulated game: see GameSimulator.
+ * A policy may keep scratch state between calls, so each simulation thread uses its own.
+ */
+public interface MousePolicy {
+    // Called once before each game, so state kept from the previous game can be reset.
+    default void startGame(MazeGame game) {
+    }
+
+    MoveDirection chooseMove(MazeGame game, GameRandom random);
+}
@@ -10,6 +10,24 @@ public enum MoveDirection {
     MOVE_DOWN,
     MOVE_LEFT;
 
+    public int getDeltaX() {
+        switch (this) {
+            case MOVE_LEFT:  return -1;
+            case MOVE_RIGHT: return 1;
+            default:
+                return 0;
+        }
+    }
+
+    public int getDeltaY() {
+        switch (this) {
+            case MOVE_UP:   return -1;
+            case MOVE_DOWN: return 1;
+            default:
+                return 0;
+        }
+    }
+
     public MoveDirection getOppositeMove() {
         switch (this) {
             case MOVE_UP:    return MOVE_DOWN;
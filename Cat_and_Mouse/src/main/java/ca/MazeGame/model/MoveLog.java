@@ -0,0 +1,202 @@
+package ca.MazeGame.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Every input a game has accepted since it started, so the game can be rebuilt from its seed.
+ * Each byte holds an input in its low 3 bits and a repeat count minus one in its high 5 bits,
+ * so runs such as the cats being moved while the player is idle cost one byte per 32 inputs.
+ * A change to the cheese goal is followed by the new goal as a varint. Moves into a wall change
+ * nothing and are not logged. A log that grows past MAX_BYTES is dropped and marked incomplete,
+ * which bounds its memory; such a game can no longer be replayed. Logging can also be turned off
+ * outright, for games that will never be replayed such as simulated ones.
+ */
+final class MoveLog {
+    static final int MAX_BYTES = 1 << 20;
+    private static final int INITIAL_BYTES = 16;
+    private static final int MAX_REPEAT = 32;
+
+    private static final int OP_MOVE_UP = 0;
+    private static final int OP_MOVE_RIGHT = 1;
+    private static final int OP_MOVE_DOWN = 2;
+    private static final int OP_MOVE_LEFT = 3;
+    private static final int OP_MOVE_CATS = 4;
+    private static final int OP_SHOW_ALL = 5;
+    private static final int OP_CHEESE_GOAL = 6;
+
+    private byte[] bytes;
+    private int length;
+    private long inputCount;
+    private boolean isComplete = true;
+    // Index of the last byte that a repeat of the same input can be folded into, or -1.
+    private int lastRunIndex = -1;
+
+    MoveLog() {
+        this(new byte[INITIAL_BYTES], 0, 0, true);
+    }
+
+    private MoveLog(byte[] bytes, int length, long inputCount, boolean isComplete) {
+        this.bytes = bytes;
+        this.length = length;
+        this.inputCount = inputCount;
+        this.isComplete = isComplete;
+    }
+
+    boolean isComplete() {
+        return isComplete;
+    }
+    long getInputCount() {
+        return inputCount;
+    }
+    int getByteLength() {
+        return length;
+    }
+
+    void recordPlayerMove(MoveDirection move) {
+        switch (move) {
+            case MOVE_UP:    recordRepeatable(OP_MOVE_UP); break;
+            case MOVE_RIGHT: recordRepeatable(OP_MOVE_RIGHT); break;
+            case MOVE_DOWN:  recordRepeatable(OP_MOVE_DOWN); break;
+            case MOVE_LEFT:  recordRepeatable(OP_MOVE_LEFT); break;
+            default:
+                break;
+        }
+    }
+
+    void recordCatMoves() {
+        recordRepeatable(OP_MOVE_CATS);
+    }
+
+    void recordShowAll() {
+        recordRepeatable(OP_SHOW_ALL);
+    }
+
+    void recordCheeseGoal(int numCheeseToCollect) {
+        if (!makeRoom(6)) {
+            return;
+        }
+        bytes[length++] = OP_CHEESE_GOAL;
+        int value = numCheeseToCollect;
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+        lastRunIndex = -1;
+        inputCount++;
+    }
+
+    private void recordRepeatable(int op) {
+        if (!isComplete) {
+            return;
+        }
+        if (lastRunIndex >= 0) {
+            int last = bytes[lastRunIndex] & 0xFF;
+            int repeats = (last >>> 3) + 1;
+            if ((last & 7) == op && repeats < MAX_REPEAT) {
+                bytes[lastRunIndex] = (byte) (op | (repeats << 3));
+                inputCount++;
+                return;
+            }
+        }
+        if (!makeRoom(1)) {
+            return;
+        }
+        lastRunIndex = length;
+        bytes[length++] = (byte) op;
+        inputCount++;
+    }
+
+    void stop() {
+        isComplete = false;
+        bytes = new byte[0];
+        length = 0;
+        lastRunIndex = -1;
+    }
+
+    private boolean makeRoom(int needed) {
+        if (!isComplete) {
+            return false;
+        }
+        if (length + needed > MAX_BYTES) {
+            stop();
+            return false;
+        }
+        if (length + needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.min(MAX_BYTES, Math.max(bytes.length * 2, length + needed)));
+        }
+        return true;
+    }
+
+    // Apply the first maxInputs inputs to a game; returns how many were applied.
+    long replayInto(MazeGame game, long maxInputs) {
+        long applied = 0;
+        int position = 0;
+        while (position < length && applied < maxInputs) {
+            int value = bytes[position++] & 0xFF;
+            int op = value & 7;
+            if (op == OP_CHEESE_GOAL) {
+                int goal = 0;
+                int shift = 0;
+                int next;
+                do {
+                    next = bytes[position++];
+                    goal |= (next & 0x7F) << shift;
+                    shift += 7;
+                } while ((next & 0x80) != 0);
+                game.setNumberCheeseToCollect(goal);
+                applied++;
+                continue;
+            }
+            int repeats = (value >>> 3) + 1;
+            for (int i = 0; i < repeats && applied < maxInputs; i++) {
+                applyRepeatable(game, op);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private static void applyRepeatable(MazeGame game, int op) {
+        switch (op) {
+            case OP_MOVE_UP:    game.recordPlayerMove(MoveDirection.MOVE_UP); break;
+            case OP_MOVE_RIGHT: game.recordPlayerMove(MoveDirection.MOVE_RIGHT); break;
+            case OP_MOVE_DOWN:  game.recordPlayerMove(MoveDirection.MOVE_DOWN); break;
+            case OP_MOVE_LEFT:  game.recordPlayerMove(MoveDirection.MOVE_LEFT); break;
+            case OP_MOVE_CATS:  game.doCatMoves(); break;
+            case OP_SHOW_ALL:   game.revealAll(); break;
+            default:
+                throw new IllegalArgumentException("Unknown move log entry " + op);
+        }
+    }
+
+    MoveLog copy() {
+        MoveLog copy = new MoveLog(Arrays.copyOf(bytes, Math.max(length, INITIAL_BYTES)), length,
+                inputCount, isComplete);
+        copy.lastRunIndex = lastRunIndex;
+        return copy;
+    }
+
+    // Layout: complete flag, input count, byte length, bytes.
+    void writeTo(ByteBuffer out) {
+        out.put((byte) (isComplete ? 1 : 0));
+        out.putLong(inputCount);
+        out.putInt(length);
+        out.put(bytes, 0, length);
+    }
+
+    int estimateWrittenSize() {
+        return 1 + 8 + 4 + length;
+    }
+
+    static MoveLog readFrom(ByteBuffer in) {
+        boolean isComplete = in.get() != 0;
+        long inputCount = in.getLong();
+        int length = in.getInt();
+        byte[] bytes = new byte[Math.max(length, INITIAL_BYTES)];
+        in.get(bytes, 0, length);
+        // New inputs start a new run rather than folding into the last saved byte.
+        return new MoveLog(bytes, length, inputCount, isComplete);
+    }
+}
@@ -0,0 +1,117 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+
+/**
+ * The open cells of a maze that can be reached from a start cell, in board order, built once from
+ * the Connectivity labelling. Picking a random one costs a single draw whatever the ratio of walls
+ * to open cells: a draw over the cells that are not excluded is shifted past each excluded cell's
+ * position in the index, found by binary search. Cells picked this way are always connected to the
+ * start cell. Not thread safe (it keeps scratch space); used under the game's lock.
+ */
+final class OpenCellIndex {
+    static final int NO_CELL = -1;
+
+    private final int[] cells;
+    // Positions in cells of the excluded cells of the current pick, in ascending order.
+    private int[] excludedPositions = new int[8];
+
+    OpenCellIndex(Board board, int startIndex) {
+        Connectivity connectivity = new Connectivity(board);
+        int region = connectivity.getRegion(startIndex);
+        int size = board.getWidth() * board.getHeight();
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            if (connectivity.getRegion(index) == region) {
+                count++;
+            }
+        }
+        cells = new int[count];
+        count = 0;
+        for (int index = 0; index < size; index++) {
+            if (connectivity.getRegion(index) == region) {
+                cells[count++] = index;
+            }
+        }
+    }
+
+    int size() {
+        return cells.length;
+    }
+
+    long estimateMemoryBytes() {
+        return 4L * cells.length;
+    }
+
+    // A uniformly random cell other than the first excludedCount entries of excluded (which may
+    // repeat, or lie outside the index), or NO_CELL if that leaves none. Uses one draw.
+    int pickCell(GameRandom random, int[] excluded, int excludedCount) {
+        int positionCount = findExcludedPositions(excluded, excludedCount);
+        int position = pickPosition(random, positionCount);
+        return (position < 0) ? NO_CELL : cells[position];
+    }
+
+    // Fill out[0 .. count) with distinct random cells, none of them excluded, using one draw per
+    // cell; returns how many were placed (fewer than count only if the index runs out). The excluded
+    // array must have room for count more entries after excludedCount: each cell picked is added
+    // there too. The excluded positions are found once and each pick's position inserted after it.
+    int pickCells(GameRandom random, int count, int[] excluded, int excludedCount, int[] out) {
+        int positionCount = findExcludedPositions(excluded, excludedCount);
+        for (int i = 0; i < count; i++) {
+            int position = pickPosition(random, positionCount);
+            if (position < 0) {
+                return i;
+            }
+            out[i] = cells[position];
+            excluded[excludedCount + i] = cells[position];
+            positionCount = insertPosition(position, positionCount);
+        }
+        return count;
+    }
+
+    // A random position that is not among the first positionCount excluded positions, or -1.
+    private int pickPosition(GameRandom random, int positionCount) {
+        int choices = cells.length - positionCount;
+        if (choices <= 0) {
+            return -1;
+        }
+        int position = random.nextInt(choices);
+        for (int i = 0; i < positionCount && excludedPositions[i] <= position; i++) {
+            position++;
+        }
+        return position;
+    }
+
+    // Sorted, distinct positions of the excluded cells that are in the index; returns their count.
+    private int findExcludedPositions(int[] excluded, int excludedCount) {
+        if (excludedPositions.length < excludedCount) {
+            excludedPositions = new int[Math.max(excludedCount, excludedPositions.length * 2)];
+        }
+        int count = 0;
+        for (int i = 0; i < excludedCount; i++) {
+            int position = Arrays.binarySearch(cells, excluded[i]);
+            if (position < 0) {
+                continue;
+            }
+            count = insertPosition(position, count);
+        }
+        return count;
+    }
+
+    // Insertion sort into the first count excluded positions, which are short; returns the new count.
+    private int insertPosition(int position, int count) {
+        if (excludedPositions.length == count) {
+            excludedPositions = Arrays.copyOf(excludedPositions, count * 2);
+        }
+        int slot = count;
+        while (slot > 0 && excludedPositions[slot - 1] > position) {
+            slot--;
+        }
+        if (slot > 0 && excludedPositions[slot - 1] == position) {
+            return count;
+        }
+        System.arraycopy(excludedPositions, slot, excludedPositions, slot + 1, count - slot);
+        excludedPositions[slot] = position;
+        return count + 1;
+    }
+}
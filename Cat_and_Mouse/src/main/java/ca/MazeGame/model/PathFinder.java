@@ -1,7 +1,7 @@
 package ca.MazeGame.model;
 
 /**
- * Immutable path finding class. Given a 2D array of CellState objects, it
+ * Immutable path finding class. Given a Board, it
  * computes if there is a path between cell locations.
  *
  */
@@ -9,31 +9,32 @@ public class PathFinder {
     private static final int INVALID_COLOUR = -1;
     private static final int START_COLOUR = 0;
 
-    private final int[][] regionArray;
+    // Colour of each cell, indexed by y * width + x.
+    private final int[] regionArray;
     private final int width;
     private final int height;
 
-    public PathFinder(final CellState[][] data) {
-        height = data.length;
-        width = data[0].length;
-        regionArray = new int[height][width];
+    public PathFinder(final Board board) {
+        height = board.getHeight();
+        width = board.getWidth();
+        regionArray = new int[height * width];
 
-        floodColoursHorizontally(data);
+        floodColoursHorizontally(board);
         unifyColoursVertically();
     }
 
-    private void floodColoursHorizontally(final CellState[][] data) {
+    private void floodColoursHorizontally(final Board board) {
         int nextColour = START_COLOUR;
         for (int y = 0; y < height; y++) {
             int currentColour = INVALID_COLOUR;
             for (int x = 0; x < width; x++) {
-                if (data[y][x].isWall()) {
+                if (board.isWall(x, y)) {
                     currentColour = INVALID_COLOUR;
                 } else if (currentColour == INVALID_COLOUR) {
                     currentColour = nextColour;
                     nextColour++;
                 }
-                regionArray[y][x] = currentColour;
+                regionArray[y * width + x] = currentColour;
             }
         }
     }
@@ -42,8 +43,8 @@ public class PathFinder {
         // If a cell and one below it are not walls, then both should be the same colour.
         for (int y = 0; y < height - 1; y++) {
             for (int x = 0; x < width; x++) {
-                int topColour = regionArray[y][x];
-                int bottomColour = regionArray[y + 1][x];
+                int topColour = regionArray[y * width + x];
+                int bottomColour = regionArray[(y + 1) * width + x];
                 if (topColour != INVALID_COLOUR && bottomColour != INVALID_COLOUR) {
                     replaceAllWith(regionArray, bottomColour, topColour);
                 }
@@ -51,12 +52,10 @@ public class PathFinder {
         }
     }
 
-    private void replaceAllWith(int[][] data, int replace, int with) {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                if (data[y][x] == replace) {
-                    data[y][x] = with;
-                }
+    private void replaceAllWith(int[] data, int replace, int with) {
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == replace) {
+                data[i] = with;
             }
         }
     }
@@ -64,15 +63,16 @@ public class PathFinder {
     public boolean hasPath(CellLocation cell1, CellLocation cell2) {
         // There exists a path between the start and the end iff they are
         // the same colour.
-        int startColour = regionArray[cell1.getY()][cell1.getX()];
-        int endColour   = regionArray[cell2.getY()][cell2.getX()];
+        int startColour = regionArray[cell1.getY() * width + cell1.getX()];
+        int endColour   = regionArray[cell2.getY() * width + cell2.getX()];
         return (startColour == endColour);
     }
 
     public void dumpFloodArray(String message) {
         System.out.println("Flood fill algorithm: " + message);
-        for (int[] row : regionArray) {
-            for (int regionIdx : row) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int regionIdx = regionArray[y * width + x];
                 if (regionIdx == -1) {
                     System.out.print("  . ");
                 } else {
@@ -0,0 +1,159 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Randomized Prim's algorithm, followed by knocking out some walls to add loops.
+ * Candidate cells are kept in a primitive int array and picked with a swap-remove,
+ * so each step is O(1) and generating a maze is linear in the number of cells.
+ * Its layouts often have 2x2 rooms or walled blocks, which Maze rejects, and the chance of one
+ * passing shrinks quickly with size: only boards up to about 30x30 are practical.
+ */
+public class PrimMazeGenerator implements MazeGenerator {
+    // Removal probability rather high because only removing walls that don't create "rooms"
+    private static final double WALL_REMOVE_PROBABILITY = 0.5;
+
+    private Board board;
+    private int width;
+    private int height;
+
+    // Reused between calls; grown when a larger board is generated.
+    private int[] candidates = new int[0];
+    private boolean[] everQueued = new boolean[0];
+
+    @Override
+    public void generate(Board board, SplittableRandom random) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+
+        board.clear();
+        fillMazeWithWalls();
+        buildMazePaths(random);
+        clearMazeCorners();
+        addLoopsToMaze(random);
+    }
+
+    private void fillMazeWithWalls() {
+        for (int y = 0; y < height; y++){
+            for (int x = 0; x < width; x++) {
+                board.setWall(x, y, true);
+                if (x == 0 || x == width - 1 || y == 0 || y == height - 1) {
+                    // Walls on edge will be visible.
+                    board.makeVisible(x, y);
+                }
+            }
+        }
+    }
+
+    // Use Randomized Prim's algorithm, as described here:
+    // http://en.wikipedia.org/wiki/Maze_generation_algorithm
+    private void buildMazePaths(SplittableRandom random) {
+        int cellCount = width * height;
+        if (candidates.length < cellCount) {
+            candidates = new int[cellCount];
+            everQueued = new boolean[cellCount];
+        } else {
+            Arrays.fill(everQueued, 0, cellCount, false);
+        }
+
+        // Start with the middle element in the maze.
+        int numCandidates = 0;
+        int start = board.indexOf(width / 2, height / 2);
+        candidates[numCandidates++] = start;
+        everQueued[start] = true;
+
+        // While there are spots to investigate, keep looping.
+        while (numCandidates > 0) {
+            // Randomly pick a candidate cell to investigate, and swap the last one into its slot.
+            int pick = random.nextInt(numCandidates);
+            int index = candidates[pick];
+            candidates[pick] = candidates[--numCandidates];
+
+            // Remove the wall, if possible. A cell that is rejected never becomes removable
+            // later (walls are only ever removed), so each cell needs to be queued only once.
+            if (okToRemoveWall(index)) {
+                board.setWall(board.xOf(index), board.yOf(index), false);
+
+                // Add surrounding squares to list to explore.
+                numCandidates = queue(index + 1, numCandidates);
+                numCandidates = queue(index - 1, numCandidates);
+                numCandidates = queue(index + width, numCandidates);
+                numCandidates = queue(index - width, numCandidates);
+            }
+        }
+    }
+
+    private int queue(int index, int numCandidates) {
+        if (everQueued[index]) {
+            return numCandidates;
+        }
+        everQueued[index] = true;
+        candidates[numCandidates] = index;
+        return numCandidates + 1;
+    }
+
+    private void clearMazeCorners() {
+        // Ensure starting cells for player and cats are free of walls:
+        board.setWall(1, 1, false);
+        board.setWall(width-2, 1, false);
+        board.setWall(1, height-2, false);
+        board.setWall(width-2, height-2, false);
+    }
+
+    private void addLoopsToMaze(SplittableRandom random) {
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                if (board.isWall(x, y)) {
+                    boolean shouldRemove = random.nextDouble() <= WALL_REMOVE_PROBABILITY;
+                    if (shouldRemove && !removalMakesEmptySquare(x, y)) {
+                        board.setWall(x, y, false);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean removalMakesEmptySquare(int x, int y) {
+        for (int dy = -1; dy <= 1; dy += 2) {
+            for (int dx = -1; dx <= 1; dx +=2) {
+                boolean isEmptyCorner = !board.isWall(x + dx, y + dy);
+                boolean isEmptyHorizontally = !board.isWall(x, y + dy);
+                boolean isEmptyVertically = !board.isWall(x + dx, y);
+                if (isEmptyCorner && isEmptyHorizontally && isEmptyVertically) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean okToRemoveWall(int index) {
+        int x = board.xOf(index);
+        int y = board.yOf(index);
+        boolean isWall = board.isWall(index);
+        boolean isTop = (y == 0);
+        boolean isBottom = (y == height - 1);
+        boolean isLeft = (x == 0);
+        boolean isRight = (x == width - 1);
+        boolean isEdge = isTop || isBottom || isLeft || isRight;
+
+        if (!isWall || isEdge) {
+            return false;
+        }
+
+        final int MIN_WALL_COUNT_WHEN_NOT_CONNECTED = 2;
+        boolean breaksMaze = (countWallsAroundCell(x, y) <= MIN_WALL_COUNT_WHEN_NOT_CONNECTED);
+        return !breaksMaze;
+    }
+
+    private int countWallsAroundCell(int x, int y) {
+        int wallCount = 0;
+        wallCount += board.isWall(x, y+1) ? 1 : 0;
+        wallCount += board.isWall(x+1, y) ? 1 : 0;
+        wallCount += board.isWall(x, y-1) ? 1 : 0;
+        wallCount += board.isWall(x-1, y) ? 1 : 0;
+        return wallCount;
+    }
+}
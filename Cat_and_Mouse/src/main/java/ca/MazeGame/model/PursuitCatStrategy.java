@@ -0,0 +1,168 @@
+package ca.MazeGame.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cats chase the mouse along shortest paths. All the cats of a game share one distance field:
+ * a breadth-first search outward from the mouse, stored in a single int[] indexed like the board.
+ * With the field in place each cat picks its step in O(1) by looking at its four neighbours,
+ * so a tick costs the same however many cats there are.
+ *
+ * The field is only rebuilt when the mouse has moved or a cat is somewhere it does not cover,
+ * so ticks while the mouse stands still are free. A rebuild stops as soon as it has reached
+ * every cat, so its cost depends on how far away the cats are rather than on the board size.
+ * Rather than clearing the array, each rebuild labels cells from a higher base: a cell holds
+ * base + distance, and anything below the current base is unlabelled. Ties between equally good
+ * steps are broken with the game's random source so cats do not all take the same route.
+ */
+public class PursuitCatStrategy implements CatStrategy {
+    private static final int INITIAL_QUEUE = 1024;
+    private static final MoveDirection[] DIRECTIONS = {
+            MoveDirection.MOVE_UP,
+            MoveDirection.MOVE_RIGHT,
+            MoveDirection.MOVE_DOWN,
+            MoveDirection.MOVE_LEFT
+    };
+
+    private int[] marks;
+    private int base = 1;
+    private int maxDistance;
+    private int fieldPlayerIndex = -1;
+    private int[] queue = new int[INITIAL_QUEUE];
+    // Open-addressed set of the cells holding cats, rebuilt with each field; 0 marks an empty slot.
+    private int[] catCells = new int[16];
+
+    @Override
+    public void prepareMoves(MazeGame game) {
+        if (marks == null) {
+            marks = new int[game.getMazeWidth() * game.getMazeHeight()];
+        }
+        if (game.getPlayerIndex() != fieldPlayerIndex || !isEveryCatLabelled(game.getCats())) {
+            buildField(game);
+        }
+    }
+
+    @Override
+    public MoveDirection chooseMove(MazeGame game, Cat cat) {
+        int locationIndex = cat.getLocationIndex();
+        int start = game.getRandom().nextInt(DIRECTIONS.length);
+        MoveDirection best = MoveDirection.MOVE_NONE;
+        int bestMark = isLabelled(locationIndex) ? marks[locationIndex] : Integer.MAX_VALUE;
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            MoveDirection move = DIRECTIONS[(start + i) & 3];
+            int neighbour = game.getMovedIndex(locationIndex, move);
+            if (isLabelled(neighbour) && marks[neighbour] < bestMark) {
+                best = move;
+                bestMark = marks[neighbour];
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public long estimateMemoryBytes(int cells) {
+        return 4L * cells;
+    }
+
+    private boolean isLabelled(int index) {
+        return marks[index] >= base;
+    }
+
+    private boolean isEveryCatLabelled(List<Cat> cats) {
+        for (int i = 0; i < cats.size(); i++) {
+            if (!isLabelled(cats.get(i).getLocationIndex())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void buildField(MazeGame game) {
+        startNewBase();
+        int catsLeft = collectCatCells(game.getCats());
+        int playerIndex = game.getPlayerIndex();
+        marks[playerIndex] = base;
+        queue[0] = playerIndex;
+        int head = 0;
+        int tail = 1;
+        int distance = 0;
+        while (head < tail && catsLeft > 0) {
+            int index = queue[head++];
+            distance = marks[index] - base;
+            if (containsCatCell(index)) {
+                catsLeft--;
+            }
+            for (MoveDirection move : DIRECTIONS) {
+                int neighbour = game.getMovedIndex(index, move);
+                if (game.isCellOpen(neighbour) && !isLabelled(neighbour)) {
+                    marks[neighbour] = base + distance + 1;
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, Math.min(marks.length, queue.length * 2));
+                    }
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        // Cells still queued were labelled one step further out.
+        maxDistance = distance + 1;
+        fieldPlayerIndex = playerIndex;
+    }
+
+    private void startNewBase() {
+        int next = base + maxDistance + 1;
+        if (next < 0 || next > Integer.MAX_VALUE - marks.length - 2) {
+            Arrays.fill(marks, 0);
+            next = 1;
+        }
+        base = next;
+        maxDistance = 0;
+    }
+
+    // Returns how many distinct cells hold cats.
+    private int collectCatCells(List<Cat> cats) {
+        int size = Integer.highestOneBit(Math.max(8, cats.size() * 2)) * 2;
+        if (catCells.length < size) {
+            catCells = new int[size];
+        } else {
+            Arrays.fill(catCells, 0);
+        }
+        int distinct = 0;
+        for (int i = 0; i < cats.size(); i++) {
+            if (addCatCell(cats.get(i).getLocationIndex())) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    // Cells are stored plus one so that cell 0 is not mistaken for an empty slot.
+    private boolean addCatCell(int index) {
+        int mask = catCells.length - 1;
+        int slot = mix(index) & mask;
+        while (catCells[slot] != 0) {
+            if (catCells[slot] == index + 1) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        catCells[slot] = index + 1;
+        return true;
+    }
+
+    private boolean containsCatCell(int index) {
+        int mask = catCells.length - 1;
+        int slot = mix(index) & mask;
+        while (catCells[slot] != 0) {
+            if (catCells[slot] == index + 1) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static int mix(int index) {
+        return index * 0x9E3779B9 >>> 7;
+    }
+}
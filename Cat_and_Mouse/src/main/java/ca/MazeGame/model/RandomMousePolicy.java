@@ -0,0 +1,31 @@
+package ca.MazeGame.model;
+
+/**
+ * Mouse that wanders: each move is picked at random from the open cells next to it.
+ */
+public class RandomMousePolicy implements MousePolicy {
+    private static final MoveDirection[] DIRECTIONS = {
+            MoveDirection.MOVE_UP,
+            MoveDirection.MOVE_RIGHT,
+            MoveDirection.MOVE_DOWN,
+            MoveDirection.MOVE_LEFT
+    };
+
+    @Override
+    public MoveDirection chooseMove(MazeGame game, GameRandom random) {
+        return chooseOpenMove(game, random);
+    }
+
+    // Try the four directions starting from a random one; the mouse is always next to an open cell.
+    static MoveDirection chooseOpenMove(MazeGame game, GameRandom random) {
+        int playerIndex = game.getPlayerIndex();
+        int start = random.nextInt(DIRECTIONS.length);
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            MoveDirection move = DIRECTIONS[(start + i) % DIRECTIONS.length];
+            if (game.isCellOpen(game.getMovedIndex(playerIndex, move))) {
+                return move;
+            }
+        }
+        return MoveDirection.MOVE_NONE;
+    }
+}
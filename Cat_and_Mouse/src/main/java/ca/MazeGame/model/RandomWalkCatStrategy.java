@@ -0,0 +1,56 @@
+package ca.MazeGame.model;
+
+/**
+ * Cats wander: each cat tries the open directions in random order, leaving going back the way it
+ * came for last so it does not pace up and down a corridor.
+ */
+public class RandomWalkCatStrategy implements CatStrategy {
+    private static final MoveDirection[] DIRECTIONS = {
+            MoveDirection.MOVE_UP,
+            MoveDirection.MOVE_DOWN,
+            MoveDirection.MOVE_RIGHT,
+            MoveDirection.MOVE_LEFT
+    };
+
+    // Scratch space for the order in which moves are tried; reused every tick.
+    private final MoveDirection[] movesToTry = new MoveDirection[DIRECTIONS.length];
+
+    @Override
+    public MoveDirection chooseMove(MazeGame game, Cat cat) {
+        int numMoves = getPossibleMoves(game, cat.getLastMove());
+        int locationIndex = cat.getLocationIndex();
+        for (int i = 0; i < numMoves; i++) {
+            MoveDirection move = movesToTry[i];
+            if (game.isCellOpen(game.getMovedIndex(locationIndex, move))) {
+                return move;
+            }
+        }
+        return MoveDirection.MOVE_NONE;
+    }
+
+    private int getPossibleMoves(MazeGame game, MoveDirection lastMove) {
+        // Have the cat try not to back-track unless needed by making the
+        // backtracking move (opposite last move) be the last one to try.
+        MoveDirection oppositeLastMove = lastMove.getOppositeMove();
+        int numMoves = 0;
+        for (MoveDirection direction : DIRECTIONS) {
+            if (direction != oppositeLastMove) {
+                movesToTry[numMoves++] = direction;
+            }
+        }
+        shuffle(game.getRandom(), numMoves);
+        if (oppositeLastMove != MoveDirection.MOVE_NONE) {
+            movesToTry[numMoves++] = oppositeLastMove;
+        }
+        return numMoves;
+    }
+
+    private void shuffle(GameRandom random, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            MoveDirection swap = movesToTry[i];
+            movesToTry[i] = movesToTry[j];
+            movesToTry[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ca.MazeGame.model;
+
+/**
+ * How far the mouse sees, chosen when a game is created: every cell within radius steps across or
+ * down (a square around the mouse), or with line of sight only the cells it can see straight down
+ * the corridors from where it stands, plus its eight neighbours. The default is the 3x3 square
+ * games have always had. See FogOfWar.
+ */
+public final class SightRange {
+    public static final int MAX_RADIUS = 32;
+    public static final SightRange DEFAULT = new SightRange(1, false);
+
+    private final int radius;
+    private final boolean isLineOfSight;
+
+    private SightRange(int radius, boolean isLineOfSight) {
+        this.radius = radius;
+        this.isLineOfSight = isLineOfSight;
+    }
+
+    // Throws IllegalArgumentException for a radius outside 1 .. MAX_RADIUS.
+    public static SightRange of(int radius, boolean isLineOfSight) {
+        if (radius < 1 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Sight radius must be 1 to " + MAX_RADIUS);
+        }
+        if (radius == DEFAULT.radius && isLineOfSight == DEFAULT.isLineOfSight) {
+            return DEFAULT;
+        }
+        return new SightRange(radius, isLineOfSight);
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public boolean hasLineOfSight() {
+        return isLineOfSight;
+    }
+}
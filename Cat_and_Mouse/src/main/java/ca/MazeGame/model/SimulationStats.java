@@ -0,0 +1,121 @@
+package ca.MazeGame.model;
+
+/**
+ * Totals from a batch of simulated games: see GameSimulator. Kept as plain counters so each
+ * simulation task can fill in its own and the results can be merged at the end.
+ * A game's length is the number of mouse moves it took; a game that reaches the step limit
+ * without being won or lost counts as unfinished.
+ */
+public final class SimulationStats {
+    // Game lengths are also counted in power-of-two buckets: bucket i holds lengths in [2^i, 2^(i+1)).
+    private static final int LENGTH_BUCKETS = 32;
+
+    private long games;
+    private long wins;
+    private long losses;
+    private long totalSteps;
+    private long winSteps;
+    private long rejectedMoves;
+    private long cheeseCollected;
+    private long shortestGame = Long.MAX_VALUE;
+    private long longestGame;
+    private final long[] lengthBuckets = new long[LENGTH_BUCKETS];
+    private long elapsedNanos;
+
+    void recordGame(boolean isWon, boolean isLost, long steps, long rejected, int cheese) {
+        games++;
+        if (isWon) {
+            wins++;
+            winSteps += steps;
+        } else if (isLost) {
+            losses++;
+        }
+        totalSteps += steps;
+        rejectedMoves += rejected;
+        cheeseCollected += cheese;
+        shortestGame = Math.min(shortestGame, steps);
+        longestGame = Math.max(longestGame, steps);
+        lengthBuckets[63 - Long.numberOfLeadingZeros(Math.max(steps, 1))]++;
+    }
+
+    void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        losses += other.losses;
+        totalSteps += other.totalSteps;
+        winSteps += other.winSteps;
+        rejectedMoves += other.rejectedMoves;
+        cheeseCollected += other.cheeseCollected;
+        shortestGame = Math.min(shortestGame, other.shortestGame);
+        longestGame = Math.max(longestGame, other.longestGame);
+        for (int i = 0; i < LENGTH_BUCKETS; i++) {
+            lengthBuckets[i] += other.lengthBuckets[i];
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+    public long getWins() {
+        return wins;
+    }
+    public long getLosses() {
+        return losses;
+    }
+    public long getUnfinished() {
+        return games - wins - losses;
+    }
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+    public long getRejectedMoves() {
+        return rejectedMoves;
+    }
+    public long getCheeseCollected() {
+        return cheeseCollected;
+    }
+    public long getShortestGame() {
+        return games == 0 ? 0 : shortestGame;
+    }
+    public long getLongestGame() {
+        return longestGame;
+    }
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getWinRate() {
+        return ratio(wins, games);
+    }
+    public double getLossRate() {
+        return ratio(losses, games);
+    }
+    public double getMeanGameLength() {
+        return ratio(totalSteps, games);
+    }
+    public double getMeanStepsToWin() {
+        return ratio(winSteps, wins);
+    }
+    public double getCheesePerMove() {
+        return ratio(cheeseCollected, totalSteps);
+    }
+    public double getStepsPerSecond() {
+        return elapsedNanos == 0 ? 0 : totalSteps * 1e9 / elapsedNanos;
+    }
+
+    // Number of games whose length fell in [2^i, 2^(i+1)), for i from 0 up to the longest game.
+    public long[] getLengthHistogram() {
+        int used = 64 - Long.numberOfLeadingZeros(Math.max(longestGame, 1));
+        long[] histogram = new long[used];
+        System.arraycopy(lengthBuckets, 0, histogram, 0, used);
+        return histogram;
+    }
+
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+}
@@ -0,0 +1,10 @@
+package ca.MazeGame.services;
+import ca.MazeGame.api.ApiGameWrapper;
+
+/**
+ * Source of games that are not in the GameRegistry, such as games saved to disk.
+ */
+public interface GameLoader {
+    // The game with this id, or null if there is none.
+    ApiGameWrapper load(long gameId);
+}
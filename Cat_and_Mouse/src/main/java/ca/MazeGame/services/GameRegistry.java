@@ -0,0 +1,346 @@
+package ca.MazeGame.services;
+import ca.MazeGame.api.ApiGameWrapper;
+import ca.MazeGame.api.RetiredGameException;
+import ca.MazeGame.model.MazeGame;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Registry of all live games, keyed by game id. Lookups go straight to a concurrent hash map
+ * so each request costs O(1) no matter how many games exist, and games can be created from
+ * many request threads at once. Work on a single game is serialized by that game's wrapper,
+ * so moves on different games never contend.
+ *
+ * The registry also bounds memory: games idle for longer than the idle timeout are evicted by a
+ * periodic sweep, and when the number of games or their estimated size goes over its cap the
+ * least recently used games are evicted until usage drops back under the low-water mark.
+ * Listeners are told whenever a game is added or removed, however it was removed.
+ * A sorted index of the live ids lets clients page through the games in id order.
+ * When a GameLoader is set, a lookup that misses asks it for the game, so games saved to disk
+ * (including evicted ones) come back on first access. A lookup of a game that is still being
+ * removed waits until every listener has been told, so it never loads a copy saved before the
+ * game's last change. Changes go through update, which looks the game up again if it was removed
+ * (and its wrapper retired) between the lookup and the change.
+ */
+
+@Component
+public class GameRegistry {
+    // After an over-capacity eviction, usage is brought down to this fraction of the cap
+    // so the sort done by the eviction is amortized over many game creations.
+    private static final double LOW_WATER_FRACTION = 0.9;
+
+    private final Map<Long, GameEntry> games = new ConcurrentHashMap<>();
+    // Games taken out of the map whose listeners have not all been told yet. Also the monitor that
+    // loads of those games wait on.
+    private final Map<Long, GameEntry> removing = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> sortedIds = new ConcurrentSkipListSet<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private final List<GameRegistryListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile GameLoader gameLoader;
+
+    private final long idleTimeoutMillis;
+    private final int maxGames;
+    private final long maxBytes;
+
+    private final AtomicLong gamesCreated = new AtomicLong();
+    private final AtomicLong gamesDeleted = new AtomicLong();
+    private final AtomicLong gamesEvictedIdle = new AtomicLong();
+    private final AtomicLong gamesEvictedOverCapacity = new AtomicLong();
+
+    public GameRegistry(@Value("${game.eviction.idle-timeout-seconds:1800}") long idleTimeoutSeconds,
+                        @Value("${game.eviction.max-games:100000}") int maxGames,
+                        @Value("${game.eviction.max-megabytes:1024}") long maxMegabytes) {
+        this.idleTimeoutMillis = idleTimeoutSeconds * 1000;
+        this.maxGames = maxGames;
+        this.maxBytes = maxMegabytes * 1024 * 1024;
+    }
+
+    public ApiGameWrapper register(MazeGame game) {
+        long id = nextId.incrementAndGet();
+        ApiGameWrapper wrapper = ApiGameWrapper.makeFromGame(game, id);
+        GameEntry entry = new GameEntry(id, wrapper);
+        games.put(id, entry);
+        gamesCreated.incrementAndGet();
+        addEntry(entry);
+        return wrapper;
+    }
+
+    // Throws IllegalArgumentException (reported as 404) when the game does not exist.
+    public ApiGameWrapper get(long gameId) {
+        GameEntry entry = games.get(gameId);
+        if (entry == null) {
+            entry = load(gameId);
+        }
+        if (entry == null) {
+            throw new IllegalArgumentException("No game with id " + gameId);
+        }
+        entry.lastAccessMillis = System.currentTimeMillis();
+        return entry.wrapper;
+    }
+
+    // Applies a change to the game and returns its result. A wrapper retired by a removal in between
+    // refuses the change, which is then made on the copy loaded back in its place.
+    public <T> T update(long gameId, Function<ApiGameWrapper, T> change) {
+        while (true) {
+            ApiGameWrapper game = get(gameId);
+            try {
+                return change.apply(game);
+            } catch (RetiredGameException e) {
+                // Removed since the lookup: look it up again.
+            }
+        }
+    }
+
+    public void change(long gameId, Consumer<ApiGameWrapper> change) {
+        update(gameId, game -> {
+            change.accept(game);
+            return null;
+        });
+    }
+
+    // Two threads may load the same game at once; the first one in wins and the other copy is dropped.
+    private GameEntry load(long gameId) {
+        if (!waitUntilRemoved(gameId)) {
+            return null;
+        }
+        GameLoader loader = gameLoader;
+        ApiGameWrapper wrapper = (loader == null) ? null : loader.load(gameId);
+        if (wrapper == null) {
+            return null;
+        }
+        GameEntry entry = new GameEntry(gameId, wrapper);
+        GameEntry existing = games.putIfAbsent(gameId, entry);
+        if (existing != null) {
+            return existing;
+        }
+        addEntry(entry);
+        return entry;
+    }
+
+    // False if interrupted while waiting.
+    private boolean waitUntilRemoved(long gameId) {
+        if (!removing.containsKey(gameId)) {
+            return true;
+        }
+        synchronized (removing) {
+            try {
+                while (removing.containsKey(gameId)) {
+                    removing.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addEntry(GameEntry entry) {
+        sortedIds.add(entry.id);
+        estimatedBytes.addAndGet(entry.estimatedBytes);
+        for (GameRegistryListener listener : listeners) {
+            listener.onGameAdded(entry.id, entry.wrapper);
+        }
+
+        if (isOverCapacity()) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    public void setGameLoader(GameLoader gameLoader) {
+        this.gameLoader = gameLoader;
+    }
+
+    // Make sure new games get ids above maxId, such as the ids of games saved by an earlier run.
+    public void reserveIdsUpTo(long maxId) {
+        nextId.accumulateAndGet(maxId, Math::max);
+    }
+
+    public boolean contains(long gameId) {
+        return games.containsKey(gameId);
+    }
+
+    // False once the game has been removed, even if a copy has since been loaded under the same id.
+    public boolean isRegistered(long gameId, ApiGameWrapper game) {
+        GameEntry entry = games.get(gameId);
+        return entry != null && entry.wrapper == game;
+    }
+
+    public void delete(long gameId) {
+        if (!games.containsKey(gameId)) {
+            load(gameId);
+        }
+        if (remove(gameId, true) == null) {
+            throw new IllegalArgumentException("No game with id " + gameId);
+        }
+        gamesDeleted.incrementAndGet();
+    }
+
+    public Map<Long, ApiGameWrapper> getAllGames() {
+        Map<Long, ApiGameWrapper> allGames = new LinkedHashMap<>();
+        for (GameEntry entry : games.values()) {
+            allGames.put(entry.id, entry.wrapper);
+        }
+        return Collections.unmodifiableMap(allGames);
+    }
+
+    // Games with an id above afterId, in id order. Like the maps it walks, the iterator is weakly
+    // consistent: games added or removed while iterating may or may not be returned.
+    public Iterator<ApiGameWrapper> iterateGamesAfter(long afterId) {
+        Iterator<Long> ids = sortedIds.tailSet(afterId, false).iterator();
+        return new Iterator<ApiGameWrapper>() {
+            private ApiGameWrapper next = advance();
+
+            private ApiGameWrapper advance() {
+                while (ids.hasNext()) {
+                    GameEntry entry = games.get(ids.next());
+                    if (entry != null) {
+                        return entry.wrapper;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public ApiGameWrapper next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                ApiGameWrapper current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    public void addListener(GameRegistryListener listener) {
+        listeners.add(listener);
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+    public long getGamesCreated() {
+        return gamesCreated.get();
+    }
+    public long getGamesDeleted() {
+        return gamesDeleted.get();
+    }
+    public long getGamesEvictedIdle() {
+        return gamesEvictedIdle.get();
+    }
+    public long getGamesEvictedOverCapacity() {
+        return gamesEvictedOverCapacity.get();
+    }
+    public int getMaxGames() {
+        return maxGames;
+    }
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Scheduled(fixedDelayString = "${game.eviction.sweep-interval-millis:60000}")
+    public void evictIdleGames() {
+        long oldestAllowed = System.currentTimeMillis() - idleTimeoutMillis;
+        for (GameEntry entry : games.values()) {
+            if (entry.lastAccessMillis < oldestAllowed && remove(entry.id, false) != null) {
+                gamesEvictedIdle.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isOverCapacity() {
+        return games.size() > maxGames || estimatedBytes.get() > maxBytes;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            // Another thread may have already made room while we waited for the lock.
+            if (!isOverCapacity()) {
+                return;
+            }
+            List<GameEntry> entries = new ArrayList<>(games.values());
+            entries.sort(Comparator.comparingLong(entry -> entry.lastAccessMillis));
+
+            long targetGames = (long) (maxGames * LOW_WATER_FRACTION);
+            long targetBytes = (long) (maxBytes * LOW_WATER_FRACTION);
+            for (GameEntry entry : entries) {
+                if (games.size() <= targetGames && estimatedBytes.get() <= targetBytes) {
+                    break;
+                }
+                if (remove(entry.id, false) != null) {
+                    gamesEvictedOverCapacity.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private GameEntry remove(long gameId, boolean isDeleted) {
+        // Marked as removing in the same step as it leaves the map, so a lookup cannot miss both.
+        GameEntry[] removed = new GameEntry[1];
+        games.computeIfPresent(gameId, (id, entry) -> {
+            removing.put(id, entry);
+            removed[0] = entry;
+            return null;
+        });
+        GameEntry entry = removed[0];
+        if (entry != null) {
+            try {
+                sortedIds.remove(gameId);
+                estimatedBytes.addAndGet(-entry.estimatedBytes);
+                for (GameRegistryListener listener : listeners) {
+                    if (isDeleted) {
+                        listener.onGameDeleted(gameId, entry.wrapper);
+                    }
+                    listener.onGameRemoved(gameId, entry.wrapper);
+                }
+            } finally {
+                removing.remove(gameId, entry);
+                synchronized (removing) {
+                    removing.notifyAll();
+                }
+            }
+        }
+        return entry;
+    }
+
+    private static class GameEntry {
+        private final long id;
+        private final ApiGameWrapper wrapper;
+        private final long estimatedBytes;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private GameEntry(long id, ApiGameWrapper wrapper) {
+            this.id = id;
+            this.wrapper = wrapper;
+            this.estimatedBytes = wrapper.estimateMemoryBytes();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ca.MazeGame.services;
+import ca.MazeGame.api.ApiGameWrapper;
+
+/**
+ * Told when a game is added to or removed from the GameRegistry, whether it was deleted or evicted.
+ * A deleted game is reported to onGameDeleted just before onGameRemoved.
+ */
+public interface GameRegistryListener {
+    void onGameAdded(long gameId, ApiGameWrapper game);
+
+    void onGameRemoved(long gameId, ApiGameWrapper game);
+
+    default void onGameDeleted(long gameId, ApiGameWrapper game) {
+    }
+}
@@ -0,0 +1,557 @@
+package ca.MazeGame.services;
+import ca.MazeGame.api.ApiGameWrapper;
+import ca.MazeGame.api.GameUpdateListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Saves games to disk so they survive a restart, and so evicted games can come back.
+ *
+ * Changed games are appended as binary snapshots (see GameSnapshot) to a memory-mapped log by a
+ * periodic flush, so a move only marks its game dirty. A deleted game gets a tombstone record.
+ * Every so often, or once the log grows past its limit, the latest record of every saved game is
+ * copied into a new checkpoint file that ends with an index of (id, offset) pairs sorted by id,
+ * and the log starts over. Starting up only maps the checkpoint and scans the log written since
+ * it, so it costs the same however many games are saved; games are read back one at a time the
+ * first time they are asked for.
+ *
+ * Records are framed as length, CRC32, log generation, game id, type, snapshot. The generation
+ * goes up with each checkpoint, so a scan of the log stops at the first record that is torn,
+ * corrupt, or left over from before the last checkpoint. Leaving the directory unset turns the
+ * store off. A checkpoint is mapped as one buffer, so it is limited to 2 GB.
+ */
+
+@Component
+public class GameStore implements GameRegistryListener, GameLoader, GameUpdateListener {
+    private static final String LOG_FILE = "games.log";
+    private static final String CHECKPOINT_FILE = "games.checkpoint";
+    private static final int CHECKPOINT_MAGIC = 0x4D474331;
+    private static final int RECORD_HEADER_BYTES = 4 + 4 + 4;
+    private static final int RECORD_KEY_BYTES = 8 + 1;
+    private static final int INDEX_ENTRY_BYTES = 8 + 8;
+    private static final int TRAILER_BYTES = 8 + 4 + 8 + 4 + 4;
+    private static final byte TYPE_SNAPSHOT = 1;
+    private static final byte TYPE_TOMBSTONE = 2;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    // A checkpoint catches up with records appended while it copied, without the lock, until fewer
+    // than this many bytes are left (or it has tried a few times), then copies the rest under it.
+    private static final int MAX_LOCKED_COPY_BYTES = 256 * 1024;
+    private static final int MAX_CATCH_UP_ROUNDS = 4;
+
+    private final GameRegistry gameRegistry;
+    private final Path directory;
+    private final int logChunkBytes;
+    private final long maxLogBytes;
+
+    // Games in the registry, and the ones changed since they were last saved.
+    private final Map<Long, ApiGameWrapper> tracked = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    // Only one checkpoint is written at a time; taken before storeLock, never while holding it.
+    private final Object checkpointLock = new Object();
+    // Guards everything below: the files, their mappings and the log index.
+    private final Object storeLock = new Object();
+    private FileChannel logChannel;
+    private MappedByteBuffer log;
+    private int logEnd;
+    private boolean isForceNeeded;
+    private int logGeneration;
+    // Offset in the log of the latest record of each game written since the last checkpoint.
+    private final Map<Long, Integer> logIndex = new TreeMap<>();
+    private MappedByteBuffer checkpoint;
+    private int checkpointIndexOffset;
+    private int checkpointCount;
+    private long maxSavedId;
+
+    private final AtomicLong snapshotsWritten = new AtomicLong();
+    private final AtomicLong gamesRestored = new AtomicLong();
+    private final AtomicLong checkpointsWritten = new AtomicLong();
+
+    public GameStore(GameRegistry gameRegistry,
+                     @Value("${game.store.directory:}") String directory,
+                     @Value("${game.store.log-chunk-megabytes:16}") int logChunkMegabytes,
+                     @Value("${game.store.max-log-megabytes:256}") int maxLogMegabytes) {
+        this.gameRegistry = gameRegistry;
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.logChunkBytes = logChunkMegabytes * 1024 * 1024;
+        this.maxLogBytes = Math.min((long) maxLogMegabytes * 1024 * 1024, Integer.MAX_VALUE - logChunkBytes);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    @PostConstruct
+    public void open() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            synchronized (storeLock) {
+                Files.createDirectories(directory);
+                openCheckpoint();
+                openLog();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open game store in " + directory, e);
+        }
+        gameRegistry.reserveIdsUpTo(maxSavedId);
+        gameRegistry.setGameLoader(this);
+        gameRegistry.addListener(this);
+    }
+
+    private void openCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            checkpoint = null;
+            checkpointCount = 0;
+            logGeneration = 0;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            checkpoint = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        checkpoint.order(ByteOrder.LITTLE_ENDIAN);
+        int trailer = checkpoint.capacity() - TRAILER_BYTES;
+        if (trailer < 0 || checkpoint.getInt(trailer + TRAILER_BYTES - 4) != CHECKPOINT_MAGIC) {
+            throw new IOException("Game store checkpoint " + path + " is damaged");
+        }
+        checkpointIndexOffset = (int) checkpoint.getLong(trailer);
+        checkpointCount = checkpoint.getInt(trailer + 8);
+        maxSavedId = Math.max(maxSavedId, checkpoint.getLong(trailer + 12));
+        logGeneration = checkpoint.getInt(trailer + 20);
+    }
+
+    private void openLog() throws IOException {
+        logChannel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(logChannel.size(), logChunkBytes);
+        mapLog((int) Math.min(size, Integer.MAX_VALUE));
+
+        // Replay the records written since the checkpoint.
+        logEnd = 0;
+        logIndex.clear();
+        int offset = 0;
+        while (isValidLogRecord(offset)) {
+            long id = log.getLong(offset + RECORD_HEADER_BYTES);
+            logIndex.put(id, offset);
+            maxSavedId = Math.max(maxSavedId, id);
+            offset += RECORD_HEADER_BYTES + log.getInt(offset);
+        }
+        logEnd = offset;
+    }
+
+    private void mapLog(int size) throws IOException {
+        log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        log.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private boolean isValidLogRecord(int offset) {
+        if (offset + RECORD_HEADER_BYTES > log.capacity()) {
+            return false;
+        }
+        int length = log.getInt(offset);
+        if (length < RECORD_KEY_BYTES || length > log.capacity() - offset - RECORD_HEADER_BYTES
+                || log.getInt(offset + 8) != logGeneration) {
+            return false;
+        }
+        ByteBuffer record = slice(log, offset + 8, length + 4);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue() == log.getInt(offset + 4);
+    }
+
+    // Marks games dirty; runs under the game's lock, so it does nothing else.
+    @Override
+    public void onGameUpdated(ApiGameWrapper game) {
+        dirty.add(game.gameNumber);
+    }
+
+    @Override
+    public void onGameAdded(long gameId, ApiGameWrapper game) {
+        tracked.put(gameId, game);
+        game.addUpdateListener(this);
+        dirty.add(gameId);
+    }
+
+    @Override
+    public void onGameDeleted(long gameId, ApiGameWrapper game) {
+        tracked.remove(gameId, game);
+        dirty.remove(gameId);
+        synchronized (storeLock) {
+            append(gameId, TYPE_TOMBSTONE, null);
+        }
+    }
+
+    // An evicted game is saved right away, so it can be loaded again later. Retiring it makes any
+    // change still on its way fail instead of landing after this last snapshot.
+    @Override
+    public void onGameRemoved(long gameId, ApiGameWrapper game) {
+        game.removeUpdateListener(this);
+        if (tracked.remove(gameId, game)) {
+            dirty.remove(gameId);
+            ByteBuffer snapshot = game.retire();
+            synchronized (storeLock) {
+                append(gameId, TYPE_SNAPSHOT, snapshot);
+            }
+        }
+    }
+
+    @Override
+    public ApiGameWrapper load(long gameId) {
+        ByteBuffer snapshot;
+        synchronized (storeLock) {
+            snapshot = findSnapshot(gameId);
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        gamesRestored.incrementAndGet();
+        return ApiGameWrapper.restoreFromSnapshot(snapshot, gameId);
+    }
+
+    // A copy of the game's latest snapshot, or null if it has none or was deleted.
+    private ByteBuffer findSnapshot(long gameId) {
+        if (log == null) {
+            return null;
+        }
+        Integer logOffset = logIndex.get(gameId);
+        if (logOffset != null) {
+            return copySnapshot(log, logOffset);
+        }
+        int checkpointOffset = findInCheckpoint(gameId);
+        return (checkpointOffset < 0) ? null : copySnapshot(checkpoint, checkpointOffset);
+    }
+
+    private int findInCheckpoint(long gameId) {
+        int low = 0;
+        int high = checkpointCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = checkpointIndexOffset + middle * INDEX_ENTRY_BYTES;
+            long id = checkpoint.getLong(entry);
+            if (id < gameId) {
+                low = middle + 1;
+            } else if (id > gameId) {
+                high = middle - 1;
+            } else {
+                return (int) checkpoint.getLong(entry + 8);
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer copySnapshot(ByteBuffer file, int offset) {
+        int length = file.getInt(offset);
+        if (file.get(offset + RECORD_HEADER_BYTES + 8) != TYPE_SNAPSHOT) {
+            return null;
+        }
+        int payloadLength = length - RECORD_KEY_BYTES;
+        ByteBuffer copy = ByteBuffer.allocate(payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+        copy.put(slice(file, offset + RECORD_HEADER_BYTES + RECORD_KEY_BYTES, payloadLength));
+        copy.flip();
+        return copy;
+    }
+
+    @Scheduled(fixedDelayString = "${game.store.flush-interval-millis:1000}")
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        for (Iterator<Long> ids = dirty.iterator(); ids.hasNext(); ) {
+            long id = ids.next();
+            ids.remove();
+            ApiGameWrapper game = tracked.get(id);
+            if (game == null) {
+                continue;
+            }
+            ByteBuffer snapshot = game.makeSnapshot();
+            synchronized (storeLock) {
+                // Skip games deleted or evicted while the snapshot was taken: they wrote their own record.
+                if (tracked.get(id) == game) {
+                    append(id, TYPE_SNAPSHOT, snapshot);
+                }
+            }
+        }
+        boolean isLogFull;
+        synchronized (storeLock) {
+            if (log != null && isForceNeeded) {
+                log.force();
+                isForceNeeded = false;
+            }
+            isLogFull = logEnd > maxLogBytes;
+        }
+        if (isLogFull) {
+            writeCheckpoint();
+        }
+    }
+
+    private void append(long gameId, byte type, ByteBuffer snapshot) {
+        if (log == null) {
+            return;
+        }
+        int length = RECORD_KEY_BYTES + (snapshot == null ? 0 : snapshot.remaining());
+        int recordBytes = RECORD_HEADER_BYTES + length;
+        try {
+            if (logEnd + recordBytes > log.capacity()) {
+                mapLog(log.capacity() + Math.max(logChunkBytes, recordBytes));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int offset = logEnd;
+        log.putInt(offset + 8, logGeneration);
+        log.putLong(offset + RECORD_HEADER_BYTES, gameId);
+        log.put(offset + RECORD_HEADER_BYTES + 8, type);
+        if (snapshot != null) {
+            ByteBuffer target = slice(log, offset + RECORD_HEADER_BYTES + RECORD_KEY_BYTES, snapshot.remaining());
+            target.put(snapshot.duplicate());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(slice(log, offset + 8, length + 4));
+        log.putInt(offset + 4, (int) crc.getValue());
+        // The length goes last, so a record is never seen before it is complete.
+        log.putInt(offset, length);
+        logEnd += recordBytes;
+        isForceNeeded = true;
+        logIndex.put(gameId, offset);
+        maxSavedId = Math.max(maxSavedId, gameId);
+        if (type == TYPE_SNAPSHOT) {
+            snapshotsWritten.incrementAndGet();
+        }
+    }
+
+    // Copies the latest record of every saved game into a new checkpoint, in id order, then starts
+    // the log over. Records are copied without the store lock, from the checkpoint and log as they
+    // stood when the copy began: a record never changes once written, and only this method starts
+    // the log over. Records appended meanwhile are copied in further rounds, and the lock is only
+    // held for the last few of them, the index and the switch to the new files.
+    @Scheduled(initialDelayString = "${game.store.checkpoint-interval-millis:300000}",
+               fixedDelayString = "${game.store.checkpoint-interval-millis:300000}")
+    public void writeCheckpoint() {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            ByteBuffer logAtStart;
+            int logEndAtStart;
+            Map<Long, Integer> logIndexAtStart;
+            ByteBuffer checkpointAtStart;
+            int checkpointCountAtStart;
+            int checkpointIndexOffsetAtStart;
+            synchronized (storeLock) {
+                if (log == null) {
+                    return;
+                }
+                logAtStart = log;
+                logEndAtStart = logEnd;
+                logIndexAtStart = new TreeMap<>(logIndex);
+                checkpointAtStart = checkpoint;
+                checkpointCountAtStart = checkpointCount;
+                checkpointIndexOffsetAtStart = checkpointIndexOffset;
+            }
+            try {
+                Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    TreeMap<Long, Long> index = new TreeMap<>();
+                    long position = copyLatestRecords(out, index, logAtStart, logIndexAtStart,
+                            checkpointAtStart, checkpointCountAtStart, checkpointIndexOffsetAtStart);
+                    int copiedLogEnd = logEndAtStart;
+                    for (int round = 0; round < MAX_CATCH_UP_ROUNDS; round++) {
+                        ByteBuffer logNow;
+                        Map<Long, Integer> appended;
+                        synchronized (storeLock) {
+                            if (log == null) {
+                                return;
+                            }
+                            if (logEnd - copiedLogEnd < MAX_LOCKED_COPY_BYTES) {
+                                break;
+                            }
+                            logNow = log;
+                            appended = findRecordsAppendedSince(copiedLogEnd);
+                            copiedLogEnd = logEnd;
+                        }
+                        position = copyAppendedRecords(out, index, position, logNow, appended);
+                    }
+                    out.force(false);
+                    synchronized (storeLock) {
+                        if (log == null) {
+                            return;
+                        }
+                        position = copyAppendedRecords(out, index, position, log,
+                                findRecordsAppendedSince(copiedLogEnd));
+                        writeIndex(out, index, position, logGeneration + 1);
+                        out.force(true);
+                        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        openCheckpoint();
+                        logEnd = 0;
+                        logIndex.clear();
+                        checkpointsWritten.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write game store checkpoint", e);
+            }
+        }
+    }
+
+    // Writes the records to out from position 0 and adds them to index; returns the end position.
+    private static long copyLatestRecords(FileChannel out, TreeMap<Long, Long> index, ByteBuffer log,
+                                          Map<Long, Integer> logIndex, ByteBuffer checkpoint,
+                                          int checkpointCount, int checkpointIndexOffset) throws IOException {
+        long position = 0;
+
+        // Merge the checkpoint's sorted index with the log index, the log winning.
+        Iterator<Map.Entry<Long, Integer>> logEntries = logIndex.entrySet().iterator();
+        Map.Entry<Long, Integer> logEntry = logEntries.hasNext() ? logEntries.next() : null;
+        int checkpointEntry = 0;
+        while (logEntry != null || checkpointEntry < checkpointCount) {
+            long checkpointId = (checkpointEntry < checkpointCount)
+                    ? checkpoint.getLong(checkpointIndexOffset + checkpointEntry * INDEX_ENTRY_BYTES)
+                    : Long.MAX_VALUE;
+            ByteBuffer file;
+            int offset;
+            long id;
+            if (logEntry != null && logEntry.getKey() <= checkpointId) {
+                id = logEntry.getKey();
+                file = log;
+                offset = logEntry.getValue();
+                if (id == checkpointId) {
+                    checkpointEntry++;
+                }
+                logEntry = logEntries.hasNext() ? logEntries.next() : null;
+            } else {
+                id = checkpointId;
+                file = checkpoint;
+                offset = (int) checkpoint.getLong(checkpointIndexOffset + checkpointEntry * INDEX_ENTRY_BYTES + 8);
+                checkpointEntry++;
+            }
+            if (file.get(offset + RECORD_HEADER_BYTES + 8) != TYPE_SNAPSHOT) {
+                continue;
+            }
+            int recordBytes = RECORD_HEADER_BYTES + file.getInt(offset);
+            index.put(id, position);
+            position += writeFully(out, slice(file, offset, recordBytes));
+        }
+        return position;
+    }
+
+    // The latest record of each game written to the log from logOffset on. Runs under storeLock.
+    private Map<Long, Integer> findRecordsAppendedSince(int logOffset) {
+        Map<Long, Integer> appended = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : logIndex.entrySet()) {
+            if (entry.getValue() >= logOffset) {
+                appended.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return appended;
+    }
+
+    // Appended records replace the copied ones; a tombstone takes its game out of the index.
+    private static long copyAppendedRecords(FileChannel out, TreeMap<Long, Long> index, long position,
+                                            ByteBuffer log, Map<Long, Integer> appended) throws IOException {
+        for (Map.Entry<Long, Integer> entry : appended.entrySet()) {
+            int offset = entry.getValue();
+            if (log.get(offset + RECORD_HEADER_BYTES + 8) != TYPE_SNAPSHOT) {
+                index.remove(entry.getKey());
+                continue;
+            }
+            int recordBytes = RECORD_HEADER_BYTES + log.getInt(offset);
+            index.put(entry.getKey(), position);
+            position += writeFully(out, slice(log, offset, recordBytes));
+        }
+        return position;
+    }
+
+    private void writeIndex(FileChannel out, TreeMap<Long, Long> index, long indexOffset, int newGeneration)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (Map.Entry<Long, Long> entry : index.entrySet()) {
+            if (buffer.remaining() < INDEX_ENTRY_BYTES) {
+                buffer.flip();
+                writeFully(out, buffer);
+                buffer.clear();
+            }
+            buffer.putLong(entry.getKey());
+            buffer.putLong(entry.getValue());
+        }
+        if (buffer.remaining() < TRAILER_BYTES) {
+            buffer.flip();
+            writeFully(out, buffer);
+            buffer.clear();
+        }
+        buffer.putLong(indexOffset);
+        buffer.putInt(index.size());
+        buffer.putLong(maxSavedId);
+        buffer.putInt(newGeneration);
+        buffer.putInt(CHECKPOINT_MAGIC);
+        buffer.flip();
+        writeFully(out, buffer);
+    }
+
+    private static int writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        int written = bytes.remaining();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        return written;
+    }
+
+    private static ByteBuffer slice(ByteBuffer file, int offset, int length) {
+        ByteBuffer view = file.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        flush();
+        synchronized (storeLock) {
+            logChannel.close();
+            log = null;
+        }
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten.get();
+    }
+    public long getGamesRestored() {
+        return gamesRestored.get();
+    }
+    public long getCheckpointsWritten() {
+        return checkpointsWritten.get();
+    }
+    public long getLogBytes() {
+        synchronized (storeLock) {
+            return logEnd;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ca.MazeGame.services;
+import ca.MazeGame.api.ApiGameWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server clock for the cats: moves the cats of every game still being played once per interval,
+ * so clients no longer have to POST MOVE_CATS. Games are split across a fixed number of shards
+ * (one per core by default) by id, and each shard is a single periodic task that ticks all of its
+ * games in one batch, so the number of timers does not grow with the number of games. Shard start
+ * times are staggered across the interval to spread the load.
+ *
+ * Tick lag is how late a shard's tick started compared with its schedule; tick duration is how
+ * long the shard took to tick all of its games. Disabled by default, since clients that still send
+ * MOVE_CATS would otherwise move the cats twice.
+ */
+
+@Component
+public class GameTicker implements GameRegistryListener {
+    private static final Logger log = LoggerFactory.getLogger(GameTicker.class);
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final Shard[] shards;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong gamesTicked = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private final AtomicLong totalDurationNanos = new AtomicLong();
+    private final AtomicLong maxDurationNanos = new AtomicLong();
+
+    public GameTicker(GameRegistry gameRegistry,
+                      @Value("${game.ticker.enabled:false}") boolean enabled,
+                      @Value("${game.ticker.interval-millis:500}") long intervalMillis,
+                      @Value("${game.ticker.shards:0}") int shardCount) {
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        int count = (shardCount > 0) ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+
+        if (!enabled) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newScheduledThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "game-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        for (int i = 0; i < count; i++) {
+            Shard shard = shards[i];
+            long initialDelayNanos = intervalNanos * i / count;
+            scheduler.scheduleAtFixedRate(() -> shard.tick(intervalNanos),
+                    initialDelayNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+        gameRegistry.addListener(this);
+        for (Map.Entry<Long, ApiGameWrapper> game : gameRegistry.getAllGames().entrySet()) {
+            long gameId = game.getKey();
+            onGameAdded(gameId, game.getValue());
+            // Removed between the snapshot and now: the removal was seen before the add.
+            if (!gameRegistry.contains(gameId)) {
+                onGameRemoved(gameId, game.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void onGameAdded(long gameId, ApiGameWrapper game) {
+        shardFor(gameId).games.put(gameId, game);
+    }
+
+    @Override
+    public void onGameRemoved(long gameId, ApiGameWrapper game) {
+        shardFor(gameId).games.remove(gameId);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+    public int getShardCount() {
+        return shards.length;
+    }
+    public int getTickedGames() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.games.size();
+        }
+        return total;
+    }
+    public long getTicks() {
+        return ticks.get();
+    }
+    public long getGamesTicked() {
+        return gamesTicked.get();
+    }
+    public long getAverageTickLagMicros() {
+        long count = ticks.get();
+        return count == 0 ? 0 : totalLagNanos.get() / count / 1000;
+    }
+    public long getMaxTickLagMicros() {
+        return maxLagNanos.get() / 1000;
+    }
+    public long getAverageTickDurationMicros() {
+        long count = ticks.get();
+        return count == 0 ? 0 : totalDurationNanos.get() / count / 1000;
+    }
+    public long getMaxTickDurationMicros() {
+        return maxDurationNanos.get() / 1000;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Shard shardFor(long gameId) {
+        return shards[(int) Math.floorMod(gameId, (long) shards.length)];
+    }
+
+    private void recordTick(long lagNanos, long durationNanos, int games) {
+        ticks.incrementAndGet();
+        gamesTicked.addAndGet(games);
+        totalLagNanos.addAndGet(lagNanos);
+        maxLagNanos.accumulateAndGet(lagNanos, Math::max);
+        totalDurationNanos.addAndGet(durationNanos);
+        maxDurationNanos.accumulateAndGet(durationNanos, Math::max);
+    }
+
+    private class Shard {
+        private final Map<Long, ApiGameWrapper> games = new ConcurrentHashMap<>();
+        // Only touched by the shard's own tick task, which never runs concurrently with itself.
+        // The schedule is measured from the first tick, as the executor keeps its own time base.
+        private boolean started;
+        private long nextTickNanos;
+
+        private void tick(long intervalNanos) {
+            long startNanos = System.nanoTime();
+            if (!started) {
+                started = true;
+                nextTickNanos = startNanos;
+            }
+            long lagNanos = Math.max(0, startNanos - nextTickNanos);
+            nextTickNanos += intervalNanos;
+
+            int ticked = 0;
+            for (ApiGameWrapper game : games.values()) {
+                try {
+                    if (game.tickCats()) {
+                        ticked++;
+                    }
+                } catch (RuntimeException e) {
+                    // An exception would cancel the shard's periodic task and stop all its games.
+                    log.warn("Cat tick failed for game {}", game.gameNumber, e);
+                }
+            }
+            recordTick(lagNanos, System.nanoTime() - startNanos, ticked);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ca.MazeGame.services;
+import ca.MazeGame.model.Maze;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of pre-built mazes, so creating a game only has to take a maze instead of generating
+ * one on the request thread. There is one bounded pool per maze size; each take schedules a
+ * refill on a small set of background workers. Refills never overshoot the pool's target
+ * size, which bounds both the queued work and the memory held by idle mazes.
+ * Sizes are pooled as games ask for them, up to a limit, and a size no game has asked for within
+ * the idle timeout is dropped so it stops holding a slot. Prefilled sizes (the default) are kept.
+ */
+
+@Component
+public class MazePool {
+    private final int targetSize;
+    private final long maxPooledCells;
+    private final int maxPooledSizes;
+    private final long idleTimeoutMillis;
+    private final ExecutorService workers;
+
+    private final Map<Long, SizePool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong totalRefillLagNanos = new AtomicLong();
+    private final AtomicLong maxRefillLagNanos = new AtomicLong();
+
+    public MazePool(@Value("${game.maze-pool.target-size:32}") int targetSize,
+                    @Value("${game.maze-pool.max-pooled-cells:20000000}") long maxPooledCells,
+                    @Value("${game.maze-pool.max-pooled-sizes:16}") int maxPooledSizes,
+                    @Value("${game.maze-pool.workers:2}") int workerCount,
+                    @Value("${game.maze-pool.idle-timeout-seconds:600}") long idleTimeoutSeconds) {
+        this.targetSize = targetSize;
+        this.maxPooledCells = maxPooledCells;
+        this.maxPooledSizes = maxPooledSizes;
+        this.idleTimeoutMillis = idleTimeoutSeconds * 1000;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "maze-pool-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Take a maze of the given size, building one on the calling thread if the pool is empty.
+    public Maze take(int width, int height) {
+        SizePool pool = getPool(width, height, false);
+        Maze maze = (pool == null) ? null : pool.mazes.poll();
+        if (maze == null) {
+            misses.incrementAndGet();
+            maze = new Maze(width, height);
+        } else {
+            hits.incrementAndGet();
+        }
+        if (pool != null) {
+            pool.lastTakenMillis = System.currentTimeMillis();
+            pool.scheduleRefills();
+        }
+        return maze;
+    }
+
+    // Start filling the pool for a size before the first game of that size is created. The size
+    // stays pooled however long it goes unused, and does not count against max-pooled-sizes.
+    public void prefill(int width, int height) {
+        SizePool pool = getPool(width, height, true);
+        if (pool != null) {
+            pool.scheduleRefills();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+    public long getMisses() {
+        return misses.get();
+    }
+    public long getRefills() {
+        return refills.get();
+    }
+    public long getAverageRefillLagMicros() {
+        long count = refills.get();
+        return count == 0 ? 0 : totalRefillLagNanos.get() / count / 1000;
+    }
+    public long getMaxRefillLagMicros() {
+        return maxRefillLagNanos.get() / 1000;
+    }
+    public int getPooledMazes() {
+        int total = 0;
+        for (SizePool pool : pools.values()) {
+            total += pool.mazes.size();
+        }
+        return total;
+    }
+    public int getPooledSizes() {
+        return pools.size();
+    }
+
+    @Scheduled(fixedDelayString = "${game.maze-pool.sweep-interval-millis:60000}")
+    public void dropIdlePools() {
+        long oldestAllowed = System.currentTimeMillis() - idleTimeoutMillis;
+        for (Map.Entry<Long, SizePool> entry : pools.entrySet()) {
+            SizePool pool = entry.getValue();
+            if (!pool.isPrefilled && pool.lastTakenMillis < oldestAllowed) {
+                // Refills still running for it finish into the dropped queue, which is then collected.
+                pools.remove(entry.getKey(), pool);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Returns null when this size is not pooled: too many sizes in use already, or
+    // a single maze of this size is too big to keep even one spare.
+    private SizePool getPool(int width, int height, boolean isPrefilled) {
+        long key = ((long) width << 32) | height;
+        SizePool pool = pools.get(key);
+        if (pool != null) {
+            return pool;
+        }
+        long cells = (long) width * height;
+        int capacity = (int) Math.min(targetSize, maxPooledCells / cells);
+        if (capacity < 1 || (!isPrefilled && countSizesPooledOnDemand() >= maxPooledSizes)) {
+            return null;
+        }
+        return pools.computeIfAbsent(key, notUsed -> new SizePool(width, height, capacity, isPrefilled));
+    }
+
+    private int countSizesPooledOnDemand() {
+        int count = 0;
+        for (SizePool pool : pools.values()) {
+            if (!pool.isPrefilled) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void recordRefillLag(long lagNanos) {
+        refills.incrementAndGet();
+        totalRefillLagNanos.addAndGet(lagNanos);
+        maxRefillLagNanos.accumulateAndGet(lagNanos, Math::max);
+    }
+
+    private class SizePool {
+        private final int width;
+        private final int height;
+        private final int capacity;
+        private final boolean isPrefilled;
+        private final BlockingQueue<Maze> mazes;
+        private final AtomicInteger refillsInFlight = new AtomicInteger();
+        private volatile long lastTakenMillis = System.currentTimeMillis();
+
+        private SizePool(int width, int height, int capacity, boolean isPrefilled) {
+            this.width = width;
+            this.height = height;
+            this.capacity = capacity;
+            this.isPrefilled = isPrefilled;
+            this.mazes = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void scheduleRefills() {
+            while (true) {
+                int inFlight = refillsInFlight.get();
+                if (mazes.size() + inFlight >= capacity) {
+                    return;
+                }
+                if (refillsInFlight.compareAndSet(inFlight, inFlight + 1)) {
+                    long requestedAt = System.nanoTime();
+                    workers.execute(() -> refill(requestedAt));
+                }
+            }
+        }
+
+        private void refill(long requestedAt) {
+            try {
+                mazes.offer(new Maze(width, height));
+                recordRefillLag(System.nanoTime() - requestedAt);
+            } finally {
+                refillsInFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ca.MazeGame.services;
+import ca.MazeGame.api.ApiGameWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialized JSON responses for the current version of each game, so repeated reads of a game
+ * that has not changed skip Jackson entirely. Each game keeps at most one response per kind, which
+ * is replaced when the game's version moves on and dropped when the game leaves the registry.
+ * Responses larger than the per-entry limit are never cached. When the total goes over its cap, the
+ * games read least recently are dropped until it is back under; a cap of zero turns the cache off.
+ */
+
+@Component
+public class ResponseCache implements GameRegistryListener {
+    public enum Kind {
+        GAME_JSON,
+        BOARD_JSON
+    }
+
+    // Eviction frees a little more than needed, so it does not run again on the next store.
+    private static final double LOW_WATER_FRACTION = 0.9;
+
+    private final GameRegistry gameRegistry;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final Map<Long, CachedGame> responses = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResponseCache(GameRegistry gameRegistry,
+                         @Value("${game.response-cache.max-megabytes:64}") long maxMegabytes,
+                         @Value("${game.response-cache.max-entry-bytes:65536}") int maxEntryBytes) {
+        this.gameRegistry = gameRegistry;
+        this.maxBytes = maxMegabytes * 1024 * 1024;
+        this.maxEntryBytes = maxEntryBytes;
+        gameRegistry.addListener(this);
+    }
+
+    // The cached response for this version of the game, or null.
+    public byte[] find(long gameId, Kind kind, long version) {
+        CachedGame cached = responses.get(gameId);
+        CachedResponse response = (cached == null) ? null : cached.responses[kind.ordinal()];
+        if (response == null || response.version != version) {
+            misses.incrementAndGet();
+            return null;
+        }
+        cached.lastUsedNanos = System.nanoTime();
+        hits.incrementAndGet();
+        return response.bytes;
+    }
+
+    public void store(long gameId, Kind kind, long version, byte[] bytes) {
+        if (bytes.length > maxEntryBytes || bytes.length > maxBytes) {
+            return;
+        }
+        responses.compute(gameId, (id, cached) -> {
+            if (cached == null) {
+                cached = new CachedGame();
+            }
+            cached.lastUsedNanos = System.nanoTime();
+            CachedResponse old = cached.responses[kind.ordinal()];
+            if (old != null && old.version > version) {
+                return cached;
+            }
+            cached.responses[kind.ordinal()] = new CachedResponse(version, bytes);
+            cachedBytes.addAndGet(bytes.length - (old == null ? 0 : old.bytes.length));
+            return cached;
+        });
+        // The game may have left the registry while this response was being built, after
+        // onGameRemoved had already dropped its entry.
+        if (!gameRegistry.contains(gameId)) {
+            drop(gameId);
+        }
+        if (cachedBytes.get() > maxBytes) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            // Another thread may have already made room while we waited for the lock.
+            if (cachedBytes.get() <= maxBytes) {
+                return;
+            }
+            // Sort on a copy of the use times: reads keep updating them while this runs.
+            List<long[]> usedAtAndIds = new ArrayList<>(responses.size());
+            for (Map.Entry<Long, CachedGame> entry : responses.entrySet()) {
+                usedAtAndIds.add(new long[] {entry.getValue().lastUsedNanos, entry.getKey()});
+            }
+            usedAtAndIds.sort(Comparator.comparingLong(usedAtAndId -> usedAtAndId[0]));
+
+            long targetBytes = (long) (maxBytes * LOW_WATER_FRACTION);
+            for (long[] usedAtAndId : usedAtAndIds) {
+                if (cachedBytes.get() <= targetBytes) {
+                    break;
+                }
+                drop(usedAtAndId[1]);
+            }
+        }
+    }
+
+    private void drop(long gameId) {
+        responses.computeIfPresent(gameId, (id, cached) -> {
+            for (CachedResponse response : cached.responses) {
+                if (response != null) {
+                    cachedBytes.addAndGet(-response.bytes.length);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void onGameAdded(long gameId, ApiGameWrapper game) {
+        // Nothing is cached until the game is first read.
+    }
+
+    @Override
+    public void onGameRemoved(long gameId, ApiGameWrapper game) {
+        drop(gameId);
+    }
+
+    public long getCachedBytes() {
+        return cachedBytes.get();
+    }
+    public long getHits() {
+        return hits.get();
+    }
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class CachedGame {
+        private final CachedResponse[] responses = new CachedResponse[Kind.values().length];
+        private volatile long lastUsedNanos;
+    }
+
+    private static class CachedResponse {
+        private final long version;
+        private final byte[] bytes;
+
+        private CachedResponse(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ca.MazeGame.services;
+
+import ca.MazeGame.api.ApiGameWrapper;
+import ca.MazeGame.model.Maze;
+import ca.MazeGame.model.MazeGame;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class GameStoreTest {
+    private static final int NUM_MOVES = 20000;
+
+    private Path directory;
+    private GameRegistry registry;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("game-store-test");
+        // An idle timeout of zero makes every sweep evict every game.
+        registry = new GameRegistry(0, Integer.MAX_VALUE, Long.MAX_VALUE / (1024 * 1024));
+        new GameStore(registry, directory.toString(), 1, 64).open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Every acknowledged move must survive the game being evicted and loaded back, however the
+    // move and the eviction interleave.
+    @Test
+    public void movesRacingEvictionAreNotLost() throws InterruptedException {
+        long gameId = registry.register(new MazeGame(new Maze(10, 10, 1), 0, 1)).gameNumber;
+        long startVersion = registry.get(gameId).getVersion();
+
+        AtomicBoolean isMoving = new AtomicBoolean(true);
+        Thread evictor = new Thread(() -> {
+            while (isMoving.get()) {
+                registry.evictIdleGames();
+            }
+        });
+        evictor.start();
+        try {
+            for (int i = 0; i < NUM_MOVES; i++) {
+                registry.change(gameId, ApiGameWrapper::moveCats);
+            }
+        } finally {
+            isMoving.set(false);
+            evictor.join();
+        }
+
+        assertEquals(startVersion + NUM_MOVES, registry.get(gameId).getVersion());
+        registry.evictIdleGames();
+        assertEquals(startVersion + NUM_MOVES, registry.get(gameId).getVersion());
+    }
+}
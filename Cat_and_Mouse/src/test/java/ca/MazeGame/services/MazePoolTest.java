@@ -0,0 +1,41 @@
+package ca.MazeGame.services;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MazePoolTest {
+    // At most two sizes pooled on demand, dropped as soon as a sweep finds them unused.
+    private final MazePool pool = new MazePool(2, 20_000_000, 2, 1, 0);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void unusedSizeIsDropped() throws InterruptedException {
+        pool.prefill(20, 15);
+        pool.take(11, 11);
+        pool.take(13, 13);
+        assertEquals(3, pool.getPooledSizes());
+
+        Thread.sleep(10);
+        pool.dropIdlePools();
+        assertEquals(1, pool.getPooledSizes());
+    }
+
+    @Test
+    public void droppedSizeFreesItsSlot() throws InterruptedException {
+        pool.take(11, 11);
+        pool.take(13, 13);
+        pool.take(15, 15);
+        assertEquals(2, pool.getPooledSizes());
+
+        Thread.sleep(10);
+        pool.dropIdlePools();
+        pool.take(15, 15);
+        assertEquals(1, pool.getPooledSizes());
+    }
+}